@@ -0,0 +1,109 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.SparrowConfiguration;
+import net.thackbarth.sparrow.dto.DirectoryCheckpoint;
+import net.thackbarth.sparrow.dto.FailedMove;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.dto.QuarantinedFile;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import java.nio.file.Path;
+import java.util.Collection;
+
+/**
+ * This class starts sparrow with an in-memory database for the benchmarks.
+ */
+public class BenchmarkContext {
+
+    private final ClassPathXmlApplicationContext context;
+
+    private final SparrowConfiguration configuration;
+
+    private final SessionFactory sessionFactory;
+
+    /**
+     * This constructor starts the application context.
+     *
+     * @param dataFolder the data folder with the music files
+     */
+    public BenchmarkContext(Path dataFolder) {
+        context = new ClassPathXmlApplicationContext("benchmarkContext.xml");
+        configuration = context.getBean(SparrowConfiguration.class);
+        configuration.setDataFolder(dataFolder.toAbsolutePath().toString());
+        sessionFactory = context.getBean(SessionFactory.class);
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public SparrowConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public Session openSession() {
+        return sessionFactory.openSession();
+    }
+
+    /**
+     * This method stores the tracks in the database.
+     *
+     * @param tracks the tracks to store
+     */
+    public void saveTracks(Collection<MusicTrack> tracks) {
+        Session session = openSession();
+        try {
+            int count = 0;
+            for (MusicTrack track : tracks) {
+                session.save(track);
+                if ((++count % configuration.getBatchSize()) == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            session.flush();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * This method removes all tracks, directories and failed moves from the database.
+     */
+    public void clearDatabase() {
+        Session session = openSession();
+        try {
+            session.createQuery("delete from " + MusicTrack.class.getName()).executeUpdate();
+            session.createQuery("delete from " + DirectoryCheckpoint.class.getName()).executeUpdate();
+            session.createQuery("delete from " + FailedMove.class.getName()).executeUpdate();
+            session.createQuery("delete from " + QuarantinedFile.class.getName()).executeUpdate();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * This method stops the application context.
+     */
+    public void close() {
+        context.close();
+    }
+}
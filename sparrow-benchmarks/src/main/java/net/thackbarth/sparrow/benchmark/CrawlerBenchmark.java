@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.SparrowCrawler;
+import net.thackbarth.sparrow.generator.FilenameGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures a crawl of a sorted synthetic library. The full crawl
+ * starts with an empty database, the incremental crawl with the result of the
+ * previous crawl.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=benchmark-log4j.xml")
+@State(Scope.Benchmark)
+public class CrawlerBenchmark {
+
+    @Param("1000")
+    private int fileCount;
+
+    @Param({"full", "incremental"})
+    private String crawl;
+
+    private Path folder;
+
+    private BenchmarkContext context;
+
+    private SparrowCrawler crawler;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("sparrow-benchmark");
+        context = new BenchmarkContext(folder);
+        SyntheticLibrary.create(folder, fileCount, context.getBean(FilenameGenerator.class));
+        crawler = context.getBean(SparrowCrawler.class);
+        crawler.startCrawling();
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareCrawl() {
+        boolean fullCrawl = "full".equals(crawl);
+        if (fullCrawl) {
+            context.clearDatabase();
+        }
+        context.getConfiguration().setFullScan(fullCrawl);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        SyntheticLibrary.delete(folder);
+    }
+
+    @Benchmark
+    public void startCrawling() {
+        crawler.startCrawling();
+    }
+}
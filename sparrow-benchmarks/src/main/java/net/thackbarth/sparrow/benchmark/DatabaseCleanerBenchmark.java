@@ -0,0 +1,111 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.DatabaseCleaner;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.generator.FilenameGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the cleaning of a database where every tenth track is
+ * stored twice and every tenth track is missing.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=benchmark-log4j.xml")
+@State(Scope.Benchmark)
+public class DatabaseCleanerBenchmark {
+
+    private static final int DISTANCE = 10;
+
+    @Param("1000")
+    private int fileCount;
+
+    private Path folder;
+
+    private BenchmarkContext context;
+
+    private DatabaseCleaner cleaner;
+
+    private List<MusicTrack> library;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("sparrow-benchmark");
+        context = new BenchmarkContext(folder);
+        library = SyntheticLibrary.create(folder, fileCount, context.getBean(FilenameGenerator.class));
+        cleaner = context.getBean(DatabaseCleaner.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void fillDatabase() {
+        List<MusicTrack> tracks = new ArrayList<MusicTrack>();
+        for (int i = 0; i < library.size(); i++) {
+            MusicTrack track = copy(library.get(i));
+            tracks.add(track);
+            if ((i % DISTANCE) == 0) {
+                tracks.add(copy(track));
+            } else if ((i % DISTANCE) == 1) {
+                MusicTrack missing = copy(track);
+                missing.setFilePath("/missing" + track.getFilePath());
+                tracks.add(missing);
+            }
+        }
+        context.saveTracks(tracks);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearDatabase() {
+        context.clearDatabase();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        SyntheticLibrary.delete(folder);
+    }
+
+    @Benchmark
+    public void clean() {
+        cleaner.clean();
+    }
+
+    private static MusicTrack copy(MusicTrack track) {
+        MusicTrack result = new MusicTrack();
+        result.setFilePath(track.getFilePath());
+        result.setTargetFilePath(track.getTargetFilePath());
+        result.setFilePathCorrect(true);
+        result.setModificationDate(track.getModificationDate());
+        result.setArtist(track.getArtist());
+        result.setAlbum(track.getAlbum());
+        result.setTitle(track.getTitle());
+        result.setTrack(track.getTrack());
+        result.setGenre(track.getGenre());
+        result.setGenreDescription(track.getGenreDescription());
+        return result;
+    }
+}
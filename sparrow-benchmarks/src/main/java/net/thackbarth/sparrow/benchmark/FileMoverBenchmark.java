@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.FileMover;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.generator.FilenameGenerator;
+import org.hibernate.Session;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the moving of an unsorted synthetic library to the
+ * generated paths.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=benchmark-log4j.xml")
+@State(Scope.Benchmark)
+public class FileMoverBenchmark {
+
+    @Param("1000")
+    private int fileCount;
+
+    private Path folder;
+
+    private BenchmarkContext context;
+
+    private FileMover fileMover;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("sparrow-benchmark");
+        context = new BenchmarkContext(folder);
+        fileMover = context.getBean(FileMover.class);
+    }
+
+    @Setup(Level.Invocation)
+    public void createLibrary() throws IOException {
+        FilenameGenerator generator = context.getBean(FilenameGenerator.class);
+        List<MusicTrack> tracks = SyntheticLibrary.create(folder, fileCount);
+        for (MusicTrack track : tracks) {
+            track.setTargetFilePath(generator.generateName(track));
+            track.setFilePathCorrect(false);
+        }
+        context.saveTracks(tracks);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteLibrary() throws IOException {
+        context.clearDatabase();
+        SyntheticLibrary.delete(folder);
+        Files.createDirectories(folder);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        SyntheticLibrary.delete(folder);
+    }
+
+    @Benchmark
+    public void moveFiles() {
+        Session session = context.openSession();
+        try {
+            fileMover.moveFiles(session);
+        } finally {
+            session.close();
+        }
+    }
+}
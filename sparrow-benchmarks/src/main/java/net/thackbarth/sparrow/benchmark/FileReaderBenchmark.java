@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.FileReader;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark measures the files per second read by the FileReader.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=benchmark-log4j.xml")
+@State(Scope.Thread)
+public class FileReaderBenchmark {
+
+    @Param("1000")
+    private int fileCount;
+
+    private Path folder;
+
+    private BenchmarkContext context;
+
+    private FileReader fileReader;
+
+    private Path[] files;
+
+    private BasicFileAttributes[] attributes;
+
+    private int index = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("sparrow-benchmark");
+        List<MusicTrack> tracks = SyntheticLibrary.create(folder, fileCount);
+        files = new Path[tracks.size()];
+        attributes = new BasicFileAttributes[tracks.size()];
+        for (int i = 0; i < files.length; i++) {
+            files[i] = folder.resolve(tracks.get(i).getFilePath().substring(1));
+            attributes[i] = Files.readAttributes(files[i], BasicFileAttributes.class);
+        }
+        context = new BenchmarkContext(folder);
+        fileReader = context.getBean(FileReader.class);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        SyntheticLibrary.delete(folder);
+    }
+
+    @Benchmark
+    public MusicTrack readFile() {
+        index = (index + 1) % files.length;
+        MusicTrack track = new MusicTrack();
+        fileReader.readFile(files[index], attributes[index], folder, track);
+        return track;
+    }
+}
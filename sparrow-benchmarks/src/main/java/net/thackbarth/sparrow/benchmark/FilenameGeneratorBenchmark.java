@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.generator.FilenameByConfigGenerator;
+import net.thackbarth.sparrow.generator.FilenameGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This benchmark compares the names per second of the compiled filename generator
+ * with the generator that cleaned every field with regular expressions.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configuration=benchmark-log4j.xml")
+@State(Scope.Thread)
+public class FilenameGeneratorBenchmark {
+
+    private FilenameGenerator legacyGenerator;
+
+    private FilenameGenerator compiledGenerator;
+
+    private MusicTrack[] tracks;
+
+    private int index = 0;
+
+    @Setup
+    public void setUp() {
+        legacyGenerator = new LegacyFilenameGenerator();
+        compiledGenerator = new FilenameByConfigGenerator();
+        tracks = new MusicTrack[]{
+                createTrack("Rock", "The Beatles", "Abbey Road (Remastered)", "07/17", "Here Comes the Sun"),
+                createTrack("Pop", "Die Ärzte", "Die Bestie in Menschengestalt", "3", "Schrei nach Liebe"),
+                createTrack("Soundtrack", "Hans Zimmer", "Inception", "12", "Time"),
+                createTrack("Speech", "Böll, Heinrich", null, null, "Ansichten eines Clowns (Teil 1)")
+        };
+    }
+
+    @Benchmark
+    public String legacy() {
+        return legacyGenerator.generateName(nextTrack());
+    }
+
+    @Benchmark
+    public String compiled() {
+        return compiledGenerator.generateName(nextTrack());
+    }
+
+    private MusicTrack nextTrack() {
+        index = (index + 1) % tracks.length;
+        return tracks[index];
+    }
+
+    private static MusicTrack createTrack(String genre, String artist, String album, String track, String title) {
+        MusicTrack result = new MusicTrack();
+        result.setGenreDescription(genre);
+        result.setArtist(artist);
+        result.setAlbum(album);
+        result.setTrack(track);
+        result.setTitle(title);
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.benchmark;
+
+import com.mpatric.mp3agic.ID3v1Genres;
+import com.mpatric.mp3agic.ID3v24Tag;
+import com.mpatric.mp3agic.NotSupportedException;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.generator.FilenameGenerator;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class creates synthetic tagged mp3 files for the benchmarks. Every file has
+ * an ID3v2.4 tag, a few silent MPEG frames and an ID3v1 tag.
+ * <p/>
+ * The library can be created from the command line to test larger trees:
+ * <pre>
+ * java -cp target/benchmarks.jar net.thackbarth.sparrow.benchmark.SyntheticLibrary &lt;folder&gt; &lt;count&gt;
+ * </pre>
+ */
+public final class SyntheticLibrary {
+
+    /* MPEG 1 Layer III, 128 kbit/s, 44100 Hz, no padding */
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0x64};
+
+    private static final int FRAME_LENGTH = 417;
+
+    private static final int FRAME_COUNT = 8;
+
+    private static final int ID3V1_LENGTH = 128;
+
+    private static final int TRACKS_PER_ALBUM = 12;
+
+    private static final int ALBUMS_PER_ARTIST = 4;
+
+    private static final int FILES_PER_FOLDER = 100;
+
+    /* Rock, Pop, Jazz, Soundtrack and Speech */
+    private static final int[] GENRES = {17, 13, 8, 24, 101};
+
+    private SyntheticLibrary() {
+        // only static methods
+    }
+
+    /**
+     * This method creates the tracks and their files. The files are stored in
+     * numbered folders like a unsorted download folder.
+     *
+     * @param folder the data folder
+     * @param count  the number of files
+     * @return the tracks with the file path relative to the data folder
+     * @throws IOException if a file could not be written
+     */
+    public static List<MusicTrack> create(Path folder, int count) throws IOException {
+        return create(folder, count, null);
+    }
+
+    /**
+     * This method creates the tracks and their files. If a generator is given the
+     * files are stored at the generated path, so the library is already sorted.
+     *
+     * @param folder    the data folder
+     * @param count     the number of files
+     * @param generator the generator of the sorted path or null
+     * @return the tracks with the file path relative to the data folder
+     * @throws IOException if a file could not be written
+     */
+    public static List<MusicTrack> create(Path folder, int count, FilenameGenerator generator) throws IOException {
+        List<MusicTrack> tracks = new ArrayList<MusicTrack>(count);
+        for (int i = 0; i < count; i++) {
+            MusicTrack track = createTrack(i);
+            String filePath;
+            if (generator != null) {
+                filePath = generator.generateName(track);
+            } else {
+                filePath = String.format("/incoming/%05d/track-%07d.mp3", i / FILES_PER_FOLDER, i);
+            }
+            track.setFilePath(filePath);
+            track.setTargetFilePath(generator != null ? filePath : null);
+            track.setFilePathCorrect(generator != null);
+            Path file = folder.resolve(filePath.substring(1));
+            Files.createDirectories(file.getParent());
+            Files.write(file, createContent(track));
+            track.setModificationDate(Files.getLastModifiedTime(file).toMillis());
+            tracks.add(track);
+        }
+        return tracks;
+    }
+
+    /**
+     * This method deletes the folder with all files.
+     *
+     * @param folder the folder to delete
+     * @throws IOException if a file could not be deleted
+     */
+    public static void delete(Path folder) throws IOException {
+        if (Files.exists(folder)) {
+            Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    private static MusicTrack createTrack(int number) {
+        int album = number / TRACKS_PER_ALBUM;
+        int artist = album / ALBUMS_PER_ARTIST;
+        MusicTrack track = new MusicTrack();
+        track.setArtist("Artist " + artist);
+        track.setAlbum("Album " + album);
+        track.setTitle("Title " + number);
+        track.setTrack(Integer.toString(number % TRACKS_PER_ALBUM + 1) + "/" + TRACKS_PER_ALBUM);
+        track.setGenre(GENRES[artist % GENRES.length]);
+        track.setGenreDescription(ID3v1Genres.GENRES[track.getGenre()]);
+        return track;
+    }
+
+    private static byte[] createContent(MusicTrack track) throws IOException {
+        ID3v24Tag tag = new ID3v24Tag();
+        tag.setArtist(track.getArtist());
+        tag.setAlbum(track.getAlbum());
+        tag.setTitle(track.getTitle());
+        tag.setTrack(track.getTrack());
+        tag.setGenre(track.getGenre());
+        byte[] tagBytes;
+        try {
+            tagBytes = tag.toBytes();
+        } catch (NotSupportedException e) {
+            throw new IOException("Could not create the tag of " + track, e);
+        }
+
+        byte[] content = new byte[tagBytes.length + FRAME_COUNT * FRAME_LENGTH + ID3V1_LENGTH];
+        System.arraycopy(tagBytes, 0, content, 0, tagBytes.length);
+        for (int i = 0; i < FRAME_COUNT; i++) {
+            System.arraycopy(FRAME_HEADER, 0, content, tagBytes.length + i * FRAME_LENGTH, FRAME_HEADER.length);
+        }
+        int id3v1Start = content.length - ID3V1_LENGTH;
+        writeText("TAG", content, id3v1Start, 3);
+        writeText(track.getTitle(), content, id3v1Start + 3, 30);
+        writeText(track.getArtist(), content, id3v1Start + 33, 30);
+        writeText(track.getAlbum(), content, id3v1Start + 63, 30);
+        content[content.length - 1] = (byte) track.getGenre().intValue();
+        return content;
+    }
+
+    private static void writeText(String text, byte[] content, int offset, int length) {
+        for (int i = 0; (i < length) && (i < text.length()); i++) {
+            content[offset + i] = (byte) text.charAt(i);
+        }
+    }
+
+    /**
+     * This method creates a synthetic library from the command line.
+     *
+     * @param args the folder and the number of files
+     * @throws IOException if a file could not be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Usage: SyntheticLibrary <folder> <count>");
+        } else {
+            Path folder = Paths.get(args[0]);
+            int count = Integer.parseInt(args[1]);
+            create(folder, count);
+            System.out.println("Created " + count + " files in " + folder.toAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.metrics.SparrowMetrics;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads the music files of a crawl with a pool of worker threads.
+ * The crawler thread offers the files, the workers read the tags and a single
+ * writer thread stores the tracks, because the session must not be shared
+ * between threads.
+ */
+class CrawlPipeline {
+
+    private static Logger logger = LoggerFactory.getLogger(CrawlPipeline.class);
+
+    /* marks the end of the write queue */
+    private static final MusicTrack END_OF_QUEUE = new MusicTrack();
+
+    /* number of waiting files per worker before the crawler reads by itself */
+    private static final int FILES_PER_WORKER = 4;
+
+    private final SparrowCrawler crawler;
+
+    private final Session session;
+
+    private final int batchSize;
+
+    private final ThreadPoolExecutor workers;
+
+    private final BlockingQueue<MusicTrack> writeQueue;
+
+    private final Thread writer;
+
+    private final SparrowMetrics metrics;
+
+    private volatile RuntimeException writerException;
+
+    /**
+     * This constructor starts the worker threads and the writer thread.
+     *
+     * @param crawler     the crawler that reads and saves the tracks
+     * @param session     the session to the database. It will only be used by the writer.
+     * @param workerCount the number of threads reading the files
+     * @param batchSize   the number of saved tracks between two flushes
+     * @param metrics     the metrics for the depths of the queues
+     */
+    CrawlPipeline(SparrowCrawler crawler, Session session, int workerCount, int batchSize,
+                  SparrowMetrics metrics) {
+        this.crawler = crawler;
+        this.metrics = metrics;
+        this.session = session;
+        this.batchSize = batchSize;
+        // the crawler reads the file by itself if all workers are busy
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(workerCount * FILES_PER_WORKER),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.writeQueue = new ArrayBlockingQueue<MusicTrack>(batchSize * 2);
+        this.writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeTracks();
+            }
+        }, "sparrow-writer");
+        this.writer.start();
+    }
+
+    /**
+     * This method hands a file over to the workers.
+     *
+     * @param file       the file to read
+     * @param attributes the attributes of the file
+     * @param rootFolder the root of the scan
+     * @param track      the object to store the information from the file
+     */
+    void submit(final Path file, final BasicFileAttributes attributes, final Path rootFolder,
+                final MusicTrack track) {
+        if (writerException == null) {
+            metrics.queueDepths(workers.getQueue().size(), writeQueue.size());
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        MusicTrack result = crawler.readTrack(file, attributes, rootFolder, track);
+                        if (result != null) {
+                            enqueue(result);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } catch (RuntimeException e) {
+                        logger.error("Could not read " + file, e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * This method checks if the writer stopped because of an error. The crawl
+     * should be ended, the tracks would not be stored anymore.
+     *
+     * @return true if the writer failed
+     */
+    boolean isFailed() {
+        return writerException != null;
+    }
+
+    /**
+     * This method waits until all submitted files are read and stored.
+     */
+    void finish() {
+        workers.shutdown();
+        try {
+            while (!workers.awaitTermination(1, TimeUnit.SECONDS)) {
+                logger.debug("Waiting for the workers");
+            }
+            enqueue(END_OF_QUEUE);
+            writer.join();
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            writer.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        if (writerException != null) {
+            throw writerException;
+        }
+    }
+
+    /**
+     * This method puts the track into the write queue. It gives up if the writer
+     * stopped, so nobody waits for a full queue that is not taken anymore.
+     *
+     * @return false if the writer stopped
+     */
+    private boolean enqueue(MusicTrack track) throws InterruptedException {
+        boolean queued = false;
+        while ((!queued) && (writerException == null) && writer.isAlive()) {
+            queued = writeQueue.offer(track, 1, TimeUnit.SECONDS);
+        }
+        return queued;
+    }
+
+    private void writeTracks() {
+        int count = 0;
+        try {
+            MusicTrack track = writeQueue.take();
+            while (track != END_OF_QUEUE) {
+                crawler.saveFile(session, track);
+                count++;
+                if ((count % batchSize) == 0) {
+                    crawler.flush(session);
+                }
+                track = writeQueue.take();
+            }
+            crawler.flush(session);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.error("Could not save the tracks", e);
+            writerException = e;
+            // stop the workers, nobody will store their results
+            workers.shutdownNow();
+            writeQueue.clear();
+        }
+    }
+}
@@ -16,22 +16,19 @@
 
 package net.thackbarth.sparrow;
 
-import net.thackbarth.sparrow.dto.MusicTrack;
-import org.hibernate.Criteria;
+import net.thackbarth.sparrow.dto.QuarantinedFile;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
-import org.hibernate.criterion.Order;
-import org.hibernate.criterion.ProjectionList;
-import org.hibernate.criterion.Projections;
-import org.hibernate.criterion.Restrictions;
+import org.hibernate.StatelessSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 
 /**
  * This class contains method to clean up the database.
@@ -39,9 +36,8 @@ import java.util.List;
 @Component("cleaner")
 public class DatabaseCleaner {
 
-    public static final String PROPERTY_FILE_PATH = "filePath";
-
-    public static final String PROPERTY_AMOUNT = "amount";
+    /* prevents that a file path is stored twice, see unique_file_path */
+    private static final String UNIQUE_INDEX = "idx_filepath_unique";
 
     private static Logger logger = LoggerFactory.getLogger(DatabaseCleaner.class);
 
@@ -53,95 +49,142 @@ public class DatabaseCleaner {
     @Autowired
     private SparrowConfiguration configuration;
 
+    /* the value of unique_file_path the index was prepared for */
+    private Boolean preparedUniqueFilePath;
+
     /**
-     * This method cleans the database. Missing files and files that are stored more
-     * than once are removed from the database.
+     * This method cleans the database. Missing files are removed from the database,
+     * of a file that is stored more than once only the first track is kept.
      */
     public void clean() {
         progress.info("Start cleaning the database");
 
+        prepareFilePathIndex();
         Session session = sessionFactory.openSession();
         removeMissingFiles(session);
         removeDoubleFiles(session);
+        removeFailedMoves(session);
+        removeQuarantinedFiles(session);
         session.close();
     }
 
-    /* package */ void removeDoubleFiles(Session session) {
-        ProjectionList projectionList = Projections.projectionList();
-        projectionList
-                .add(Projections.groupProperty(PROPERTY_FILE_PATH).as(PROPERTY_FILE_PATH))
-                .add(Projections.count(PROPERTY_FILE_PATH).as(PROPERTY_AMOUNT));
-        Criteria doubleCriteria = session.createCriteria(MusicTrack.class)
-                .setProjection(projectionList)
-                .setMaxResults(configuration.getBatchSize())
-                .addOrder(Order.desc(PROPERTY_AMOUNT));
-
-        boolean uniqueFileFound = false;
-        do {
-            progress.info("Delete double files from database.");
-            List doubleList = doubleCriteria.list();
-            if (doubleList.isEmpty()) {
-                uniqueFileFound = true;
-            } else {
-                for (Object obj : doubleList) {
-                    uniqueFileFound = checkDoubleFiles(session, (Object[]) obj) || uniqueFileFound;
+    /**
+     * This method creates or drops the unique index on the file path as configured.
+     * The duplicates are removed before the index is created. It is called before
+     * tracks are stored or cleaned, the other modes must not change the database.
+     * The index is only prepared again if the configuration changed.
+     */
+    public synchronized void prepareFilePathIndex() {
+        Boolean uniqueFilePath = configuration.getUniqueFilePath();
+        if (!uniqueFilePath.equals(preparedUniqueFilePath)) {
+            Session session = sessionFactory.openSession();
+            try {
+                if (uniqueFilePath) {
+                    removeDoubleFiles(session);
+                    session.createSQLQuery("create unique index if not exists " + UNIQUE_INDEX
+                            + " on tracks (filePath)").executeUpdate();
+                } else {
+                    session.createSQLQuery("drop index if exists " + UNIQUE_INDEX).executeUpdate();
                 }
+            } finally {
+                session.close();
             }
-            session.flush();
-        } while (!uniqueFileFound);
+            preparedUniqueFilePath = uniqueFilePath;
+        }
     }
 
-    private boolean checkDoubleFiles(Session session, Object[] result) {
-        boolean uniqueFileFound = false;
-        if (result.length == 2) {
-            Long amount = (Long) result[1];
-            if (amount > 1) {
-                List filePathList = session.createCriteria(MusicTrack.class)
-                        .add(Restrictions.eq(PROPERTY_FILE_PATH, result[0]))
-                        .list();
-                for (Object deleteObj : filePathList) {
-                    logger.info("Remove from database: " + deleteObj);
-                    session.delete(deleteObj);
-                }
-            } else {
-                uniqueFileFound = true;
+    /* package */ void removeDoubleFiles(Session session) {
+        progress.info("Delete double files from database.");
+        session.flush();
+        // the first stored track of a file path is kept
+        int count = session.createQuery("delete from MusicTrack t where t.filePath is not null"
+                + " and t.id not in (select min(d.id) from MusicTrack d"
+                + " where d.filePath is not null group by d.filePath)")
+                .executeUpdate();
+        logger.info("Removed double files from database: " + count);
+    }
+
+    /* package */ void removeFailedMoves(Session session) {
+        int count = session.createQuery("delete from FailedMove f"
+                + " where f.trackId not in (select t.id from MusicTrack t)")
+                .executeUpdate();
+        logger.info("Removed failed moves of deleted tracks: " + count);
+    }
+
+    /* package */ void removeQuarantinedFiles(Session session) {
+        int count = 0;
+        List list = session.createQuery("from QuarantinedFile q").list();
+        for (Object obj : list) {
+            QuarantinedFile file = (QuarantinedFile) obj;
+            if (!new File(configuration.getDataFolder() + file.getFilePath()).exists()) {
+                session.delete(file);
+                count++;
             }
         }
-        return uniqueFileFound;
+        session.flush();
+        logger.info("Removed quarantined files that do not exist: " + count);
     }
 
     /* package */ void removeMissingFiles(Session session) {
-        Criteria criteria = session.createCriteria(MusicTrack.class).addOrder(Order.asc("id"));
-        List listOfTracks;
-        List<MusicTrack> tracksToDelete = new LinkedList<MusicTrack>();
-        int batchNumber = 0;
-        do {
-            progress.info("Checked files: " + configuration.getBatchSize() * batchNumber);
-            criteria.setFirstResult(configuration.getBatchSize() * batchNumber++);
-            criteria.setMaxResults(configuration.getBatchSize());
-            listOfTracks = criteria.list();
-
-            if (!listOfTracks.isEmpty()) {
-                checkMissingFiles(listOfTracks, tracksToDelete);
-            }
-        } while (!listOfTracks.isEmpty());
-        if (!tracksToDelete.isEmpty()) {
-            for (MusicTrack track : tracksToDelete) {
-                session.delete(track);
+        // the scan uses its own connection and must see the changes of the session
+        session.flush();
+        StatelessSession scanSession = sessionFactory.openStatelessSession();
+        ExistenceChecker checker = new ExistenceChecker(configuration.getCheckWorkers());
+        try {
+            TrackScanner scanner = new TrackScanner(scanSession, "t.filePath", configuration.getBatchSize());
+            List<Long> idsToDelete = new ArrayList<Long>();
+            int checked = 0;
+            List<Object[]> rows = scanner.nextBatch();
+            List<Future<Boolean>> checks = checker.submit(toFiles(rows));
+            while (!rows.isEmpty()) {
+                // the next batch is read while the files are checked
+                List<Object[]> nextRows = scanner.nextBatch();
+                List<Future<Boolean>> nextChecks = checker.submit(toFiles(nextRows));
+                collectMissingFiles(checker, rows, checks, idsToDelete);
+                checked += rows.size();
+                progress.info("Checked files: " + checked);
+                if (idsToDelete.size() >= configuration.getBatchSize()) {
+                    deleteTracks(scanSession, idsToDelete);
+                }
+                rows = nextRows;
+                checks = nextChecks;
             }
-            session.flush();
+            deleteTracks(scanSession, idsToDelete);
+        } catch (InterruptedException e) {
+            logger.error("The check of the files was interrupted");
+            Thread.currentThread().interrupt();
+        } finally {
+            checker.shutdown();
+            scanSession.close();
+        }
+    }
+
+    private List<File> toFiles(List<Object[]> rows) {
+        List<File> files = new ArrayList<File>(rows.size());
+        for (Object[] row : rows) {
+            files.add(new File(configuration.getDataFolder() + row[1]));
         }
+        return files;
     }
 
-    private void checkMissingFiles(List listOfTracks, List<MusicTrack> tracksToDelete) {
-        for (Object obj : listOfTracks) {
-            MusicTrack track = (MusicTrack) obj;
-            File musicFile = new File(configuration.getDataFolder() + track.getFilePath());
-            if (!musicFile.exists()) {
-                logger.info("Removing " + track);
-                tracksToDelete.add(track);
+    private void collectMissingFiles(ExistenceChecker checker, List<Object[]> rows,
+                                     List<Future<Boolean>> checks, List<Long> idsToDelete)
+            throws InterruptedException {
+        for (int i = 0; i < rows.size(); i++) {
+            if (!checker.exists(checks.get(i))) {
+                logger.info("Removing " + rows.get(i)[1]);
+                idsToDelete.add((Long) rows.get(i)[0]);
             }
         }
     }
 
+    private void deleteTracks(StatelessSession scanSession, List<Long> ids) {
+        if (!ids.isEmpty()) {
+            scanSession.createQuery("delete from MusicTrack t where t.id in (:ids)")
+                    .setParameterList("ids", ids)
+                    .executeUpdate();
+            ids.clear();
+        }
+    }
+
 }
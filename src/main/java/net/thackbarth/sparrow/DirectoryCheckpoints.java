@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.DirectoryCheckpoint;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * This class holds the checkpoints of the directories during a crawl.
+ * <p/>
+ * The modification date of a directory only changes if entries are created,
+ * deleted or renamed. A directory with the same modification date and the same
+ * number of entries as in the last run still contains the same files and
+ * directories, so its files need not to be visited and only the known sub
+ * directories have to be checked. Files changed in place are not noticed, a full
+ * crawl will find them.
+ */
+class DirectoryCheckpoints {
+
+    private static Logger logger = LoggerFactory.getLogger(DirectoryCheckpoints.class);
+
+    private final Map<String, DirectoryCheckpoint> checkpoints = new HashMap<String, DirectoryCheckpoint>();
+
+    private final Map<String, List<String>> subDirectories = new HashMap<String, List<String>>();
+
+    private final Set<String> visited = new HashSet<String>();
+
+    private final List<DirectoryCheckpoint> changed = new LinkedList<DirectoryCheckpoint>();
+
+    /**
+     * This method loads all checkpoints of the last run.
+     *
+     * @param session the session to the database
+     */
+    void load(Session session) {
+        List list = session.createCriteria(DirectoryCheckpoint.class).list();
+        for (Object obj : list) {
+            DirectoryCheckpoint checkpoint = (DirectoryCheckpoint) obj;
+            String path = checkpoint.getDirectoryPath();
+            checkpoints.put(path, checkpoint);
+            int index = path.lastIndexOf('/');
+            if (index >= 0) {
+                String parent = path.substring(0, index);
+                List<String> children = subDirectories.get(parent);
+                if (children == null) {
+                    children = new LinkedList<String>();
+                    subDirectories.put(parent, children);
+                }
+                children.add(path);
+            }
+        }
+        session.clear();
+    }
+
+    /**
+     * This method marks a directory as existing.
+     *
+     * @param path the path of the directory relative to the data folder
+     */
+    void visit(String path) {
+        visited.add(path);
+    }
+
+    /**
+     * This method checks if the directory is unchanged since the last run. The
+     * entries of the directory are counted without reading their attributes.
+     *
+     * @param path             the path of the directory relative to the data folder
+     * @param directory        the directory
+     * @param modificationDate the current modification date of the directory
+     * @return true if the directory has not changed
+     */
+    boolean isUnchanged(String path, Path directory, long modificationDate) {
+        DirectoryCheckpoint checkpoint = checkpoints.get(path);
+        boolean unchanged = (checkpoint != null)
+                && (checkpoint.getModificationDate() != null)
+                && (checkpoint.getModificationDate() == modificationDate);
+        if (unchanged) {
+            // the modification date could be too coarse to see a change
+            unchanged = (checkpoint.getEntryCount() != null)
+                    && (checkpoint.getEntryCount() == countEntries(directory));
+        }
+        return unchanged;
+    }
+
+    /**
+     * This method returns the sub directories of an unchanged directory.
+     *
+     * @param path the path of the directory relative to the data folder
+     * @return the paths of the sub directories
+     */
+    List<String> getSubDirectories(String path) {
+        List<String> children = subDirectories.get(path);
+        return (children == null) ? Collections.<String>emptyList() : children;
+    }
+
+    /**
+     * This method stores the state of a completely crawled directory.
+     *
+     * @param path             the path of the directory relative to the data folder
+     * @param modificationDate the modification date read before the directory was crawled
+     * @param entryCount       the number of entries of the directory
+     */
+    void update(String path, long modificationDate, int entryCount) {
+        DirectoryCheckpoint checkpoint = checkpoints.get(path);
+        if (checkpoint == null) {
+            checkpoint = new DirectoryCheckpoint();
+            checkpoint.setDirectoryPath(path);
+            checkpoints.put(path, checkpoint);
+        }
+        checkpoint.setModificationDate(modificationDate);
+        checkpoint.setEntryCount(entryCount);
+        changed.add(checkpoint);
+    }
+
+    /**
+     * This method saves the changed checkpoints and removes the checkpoints of the
+     * directories that do not exist anymore. It must only be called if the whole
+     * data folder was crawled.
+     *
+     * @param session   the session to the database
+     * @param batchSize the number of checkpoints between two flushes
+     */
+    void save(Session session, int batchSize) {
+        int count = 0;
+        for (DirectoryCheckpoint checkpoint : changed) {
+            session.saveOrUpdate(checkpoint);
+            if ((++count % batchSize) == 0) {
+                session.flush();
+                session.clear();
+            }
+        }
+        for (DirectoryCheckpoint checkpoint : checkpoints.values()) {
+            if ((!visited.contains(checkpoint.getDirectoryPath())) && (checkpoint.getId() != null)) {
+                session.delete(checkpoint);
+                if ((++count % batchSize) == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+        }
+        session.flush();
+        session.clear();
+        logger.info("Changed directories: " + changed.size());
+    }
+
+    private int countEntries(Path directory) {
+        int count = -1;
+        try {
+            DirectoryStream<Path> stream = Files.newDirectoryStream(directory);
+            try {
+                count = 0;
+                for (Iterator<Path> iterator = stream.iterator(); iterator.hasNext(); iterator.next()) {
+                    count++;
+                }
+            } finally {
+                stream.close();
+            }
+        } catch (IOException e) {
+            logger.error("Could not read " + directory, e);
+        }
+        return count;
+    }
+}
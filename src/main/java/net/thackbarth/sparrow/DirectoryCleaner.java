@@ -21,7 +21,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
 
 /**
  * This class offers method to delete empty directories.
@@ -34,40 +37,132 @@ public class DirectoryCleaner {
     @Autowired
     private SparrowConfiguration configuration;
 
+    /**
+     * This method deletes the given directories if they are empty and afterwards
+     * their parents up to the data folder until a directory is not empty. If
+     * full_cleanup is set, all empty directories of the data folder are deleted.
+     *
+     * @param directories the directories that files were moved out of
+     */
+    public void deleteEmptyDirs(Collection<Path> directories) {
+        if (configuration.getFullCleanup()) {
+            deleteEmptyDirs();
+        } else {
+            Path folder = Paths.get(configuration.getDataFolder()).toAbsolutePath().normalize();
+            // the deepest directory first, so a parent is checked after all of its children
+            PriorityQueue<Path> queue = new PriorityQueue<Path>(Math.max(directories.size(), 1),
+                    new Comparator<Path>() {
+                        @Override
+                        public int compare(Path first, Path second) {
+                            return second.getNameCount() - first.getNameCount();
+                        }
+                    });
+            Set<Path> queued = new HashSet<Path>();
+            for (Path directory : directories) {
+                enqueue(directory.toAbsolutePath().normalize(), folder, queue, queued);
+            }
+            while (!queue.isEmpty()) {
+                Path dir = queue.poll();
+                // an empty directory is deleted with a single call, no listing is needed
+                if (deleteIfEmpty(dir)) {
+                    enqueue(dir.getParent(), folder, queue, queued);
+                }
+            }
+        }
+    }
+
+    private void enqueue(Path dir, Path folder, Queue<Path> queue, Set<Path> queued) {
+        if ((dir != null) && dir.startsWith(folder) && (!dir.equals(folder)) && queued.add(dir)) {
+            queue.add(dir);
+        }
+    }
+
+    private boolean deleteIfEmpty(Path dir) {
+        boolean deleted = false;
+        try {
+            Files.delete(dir);
+            logger.info("Delete folder " + dir);
+            deleted = true;
+        } catch (DirectoryNotEmptyException e) {
+            logger.debug("Folder is not empty: " + dir);
+        } catch (NoSuchFileException e) {
+            // the parent may be empty now
+            deleted = true;
+        } catch (IOException e) {
+            logger.error("Could not delete directory: " + dir, e);
+        }
+        return deleted;
+    }
+
     /**
      * This method delete empty directories.
      */
     public void deleteEmptyDirs() {
-        File folder = new File(configuration.getDataFolder());
+        Path folder = Paths.get(configuration.getDataFolder()).toAbsolutePath();
         logger.info("Start cleaning directory: " + configuration.getDataFolder());
-        File[] files = folder.listFiles();
-        if (files != null) {
-            removeEmptyDirectories(files);
+        if (Files.isDirectory(folder)) {
+            try {
+                Files.walkFileTree(folder, new EmptyDirectoryVisitor(folder));
+            } catch (IOException e) {
+                logger.error("Could not clean directory: " + folder, e);
+            }
         }
     }
 
     /**
-     * Recursive method to delete empty directories.
-     *
-     * @param files file objects to test
+     * This visitor deletes empty directories after their content was visited. It
+     * counts the remaining entries of each directory, so no directory has to be
+     * listed twice.
      */
-    private void removeEmptyDirectories(File[] files) {
-        for (File file : files) {
-            if (file.isDirectory()) {
-                File[] content = file.listFiles();
-                if (content != null) {
-                    removeEmptyDirectories(content);
-                }
-                // reload
-                content = file.listFiles();
-                if ((content != null) && (content.length == 0)) {
-                    logger.info("Delete folder " + file.getAbsolutePath());
-                    boolean delete = file.delete();
-                    if (!delete) {
-                        logger.error("Could not delete directory: " + file.getAbsolutePath());
-                    }
+    private static class EmptyDirectoryVisitor extends SimpleFileVisitor<Path> {
+
+        private final Path rootFolder;
+
+        /* the number of remaining entries of the directories on the current path */
+        private final Deque<int[]> entryCounts = new ArrayDeque<int[]>();
+
+        EmptyDirectoryVisitor(Path rootFolder) {
+            this.rootFolder = rootFolder;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            entryCounts.push(new int[1]);
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            entryCounts.peek()[0]++;
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            logger.error("Could not read " + file, exc);
+            if (!entryCounts.isEmpty()) {
+                entryCounts.peek()[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            int remaining = entryCounts.pop()[0];
+            boolean deleted = false;
+            if ((remaining == 0) && (exc == null) && (!dir.equals(rootFolder))) {
+                logger.info("Delete folder " + dir);
+                try {
+                    Files.delete(dir);
+                    deleted = true;
+                } catch (IOException e) {
+                    logger.error("Could not delete directory: " + dir, e);
                 }
             }
+            if ((!deleted) && (!entryCounts.isEmpty())) {
+                entryCounts.peek()[0]++;
+            }
+            return FileVisitResult.CONTINUE;
         }
     }
 
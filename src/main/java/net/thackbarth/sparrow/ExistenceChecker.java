@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class checks if files exist with several threads, because a check on a
+ * network share waits some milliseconds for the server. Virtual threads are used
+ * if the JDK supports them, otherwise a pool of threads. In both cases not more
+ * than the given number of checks run at the same time.
+ */
+class ExistenceChecker {
+
+    private static Logger logger = LoggerFactory.getLogger(ExistenceChecker.class);
+
+    private final ExecutorService executor;
+
+    private final Semaphore permits;
+
+    /**
+     * This constructor starts the threads.
+     *
+     * @param concurrency the maximum number of checks at the same time
+     */
+    ExistenceChecker(int concurrency) {
+        this.permits = new Semaphore(Math.max(concurrency, 1));
+        this.executor = createExecutor(Math.max(concurrency, 1));
+    }
+
+    /**
+     * This method starts the checks of the given files.
+     *
+     * @param files the files to check
+     * @return the results of the checks in the order of the files
+     */
+    List<Future<Boolean>> submit(List<File> files) {
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(files.size());
+        for (final File file : files) {
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws InterruptedException {
+                    permits.acquire();
+                    try {
+                        return file.exists();
+                    } finally {
+                        permits.release();
+                    }
+                }
+            }));
+        }
+        return results;
+    }
+
+    /**
+     * This method waits for the result of a check. A file that could not be checked
+     * is handled as existing, so it is not removed by mistake.
+     *
+     * @param result the result of the check
+     * @return false if the file does not exist
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    boolean exists(Future<Boolean> result) throws InterruptedException {
+        boolean exists = true;
+        try {
+            exists = result.get();
+        } catch (ExecutionException e) {
+            logger.error("Could not check a file", e.getCause());
+        }
+        return exists;
+    }
+
+    /**
+     * This method stops the threads.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static ExecutorService createExecutor(int concurrency) {
+        ExecutorService result = null;
+        try {
+            // Java 21 and newer
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            result = (ExecutorService) method.invoke(null);
+        } catch (NoSuchMethodException e) {
+            logger.debug("Virtual threads are not supported");
+        } catch (IllegalAccessException e) {
+            logger.debug("Virtual threads are not accessible", e);
+        } catch (InvocationTargetException e) {
+            logger.debug("Virtual threads are not available", e.getCause());
+        }
+        if (result == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            result = Executors.newFixedThreadPool(concurrency, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "sparrow-check-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return result;
+    }
+}
@@ -16,11 +16,11 @@
 
 package net.thackbarth.sparrow;
 
+import net.thackbarth.sparrow.dto.FailedMove;
 import net.thackbarth.sparrow.dto.MusicTrack;
-import org.apache.commons.io.FileUtils;
-import org.hibernate.Criteria;
+import net.thackbarth.sparrow.metrics.SparrowMetrics;
+import net.thackbarth.sparrow.mover.MoveStrategy;
 import org.hibernate.Session;
-import org.hibernate.criterion.Restrictions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,7 +28,8 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.nio.file.Path;
+import java.util.*;
 
 /**
  * This class moves music files to the new location.
@@ -43,64 +44,202 @@ public class FileMover {
     @Autowired
     private SparrowConfiguration configuration;
 
+    @Autowired
+    private MoveStrategy moveStrategy;
+
+    @Autowired
+    private MoveJournal journal;
+
+    @Autowired
+    private SparrowMetrics metrics;
+
     /**
      * This method move all MusicTrack stored in the database to the new target if the
-     * filePathCorrect is false.
+     * filePathCorrect is false. The files of a batch are moved in parallel, the tracks
+     * are updated afterwards. A track whose file could not be moved keeps its path and
+     * is stored as a failed move, it is tried again after the retry_delay multiplied
+     * by the number of its attempts. The moves are
+     * written to the MoveJournal before the files are touched. If the move is not
+     * active, the moves are only logged and the database is not changed.
      *
      * @param session the session to the database
+     * @return the directories that files were moved out of
+     */
+    public Set<Path> moveFiles(Session session) {
+        return moveFiles(session, new MoveQueue(session, configuration.getBatchSize(),
+                configuration.getRetryDelay()));
+    }
+
+    /**
+     * This method moves the files of a plan that was written by writePlan. The tags
+     * of the files are not read again. A move of the plan is skipped if its track was
+     * changed since the plan was written.
+     *
+     * @param session  the session to the database
+     * @param planFile the plan to apply
+     * @return the directories that files were moved out of
      */
-    public void moveFiles(Session session) {
+    public Set<Path> applyPlan(Session session, Path planFile) {
+        Set<Path> sourceDirectories = Collections.emptySet();
+        try {
+            MovePlan.Reader plan = new MovePlan.Reader(session, configuration.getBatchSize(), planFile);
+            try {
+                sourceDirectories = moveFiles(session, plan);
+            } finally {
+                plan.close();
+            }
+            if (plan.getSkipped() > 0) {
+                logger.warn("Skipped moves of the plan: " + plan.getSkipped());
+            }
+        } catch (IOException e) {
+            logger.error("Could not read the plan " + planFile, e);
+        }
+        return sourceDirectories;
+    }
+
+    /**
+     * This method writes all pending moves to a plan file instead of moving them.
+     *
+     * @param session  the session to the database
+     * @param planFile the plan to write
+     */
+    public void writePlan(Session session, Path planFile) {
+        try {
+            int count = MovePlan.write(session, configuration.getBatchSize(),
+                    configuration.getDataFolder(), planFile);
+            progress.info("Moves written to " + planFile + ": " + count);
+        } catch (IOException e) {
+            logger.error("Could not write the plan " + planFile, e);
+        }
+    }
+
+    private Set<Path> moveFiles(Session session, MoveSource source) {
+        Set<Path> sourceDirectories = new HashSet<Path>();
         int count = 0;
-        List list;
-        do {
-            Criteria criteria = session.createCriteria(MusicTrack.class)
-                    .add(Restrictions.eq("filePathCorrect", false)).setMaxResults(configuration.getBatchSize());
-            list = criteria.list();
-            if (!list.isEmpty()) {
-                for (Object obj : list) {
-                    MusicTrack track = (MusicTrack) obj;
-                    File srcFile = new File(configuration.getDataFolder() + track.getFilePath());
-                    File targetFile = new File(configuration.getDataFolder() + track.getTargetFilePath());
-                    boolean errorFree = srcFile.exists();
-                    File targetParent = targetFile.getParentFile();
-                    if (!targetParent.exists()) {
-                        errorFree &= targetParent.mkdirs();
-                    }
-                    if (errorFree) {
-                        logger.info("Move " + srcFile.getAbsolutePath()
-                                + " to " + targetFile.getAbsolutePath());
-                        moveFile(srcFile, targetFile);
-                    }
-
-                    // update the database
-                    File updatedTargetFile = new File(configuration.getDataFolder() + track.getTargetFilePath());
-                    track.setFilePathCorrect(true);
-                    track.setFilePath(track.getTargetFilePath());
-                    track.setModificationDate(updatedTargetFile.lastModified());
-                    session.update(track);
+        int failed = 0;
+        boolean complete = false;
+        MoveExecutor executor = new MoveExecutor(configuration.getMoveWorkers(),
+                configuration.getMoveActive(), moveStrategy, metrics.getMoveLatency());
+        try {
+            if (configuration.getMoveActive()) {
+                journal.open();
+            }
+            List<MusicTrack> tracks = source.nextBatch();
+            while (!tracks.isEmpty()) {
+                List<MoveExecutor.Move> moves = new ArrayList<MoveExecutor.Move>(tracks.size());
+                for (MusicTrack track : tracks) {
+                    moves.add(new MoveExecutor.Move(track,
+                            new File(configuration.getDataFolder() + track.getFilePath()),
+                            new File(configuration.getDataFolder() + track.getTargetFilePath())));
+                }
+                if (configuration.getMoveActive()) {
+                    journal.writeIntents(moves);
+                    executor.execute(moves);
+                    failed += updateTracks(session, moves);
+                    collectSourceDirectories(moves, sourceDirectories);
+                } else {
+                    executor.execute(moves);
+                    failed += countFailed(moves);
                 }
-                count += list.size();
+                count += tracks.size();
                 progress.info("Moved files: " + count);
+                long start = System.nanoTime();
                 session.flush();
+                session.clear();
+                metrics.sessionFlushed(System.nanoTime() - start);
+                if (configuration.getMoveActive()) {
+                    journal.writeCommits(moves);
+                }
+                tracks = source.nextBatch();
+            }
+            complete = true;
+        } catch (IOException e) {
+            logger.error("Could not read the moves or write the move journal, the move of the files is stopped", e);
+        } catch (InterruptedException e) {
+            logger.error("The move of the files was interrupted");
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
+            journal.close(complete);
+        }
+        if (failed > 0) {
+            logger.warn("Failed moves: " + failed);
+        }
+        logger.info("Move strategy: " + moveStrategy);
+        return sourceDirectories;
+    }
+
+    private int countFailed(List<MoveExecutor.Move> moves) {
+        int failed = 0;
+        for (MoveExecutor.Move move : moves) {
+            if (move.getResult() != MoveExecutor.Result.MOVED) {
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private void collectSourceDirectories(List<MoveExecutor.Move> moves, Set<Path> sourceDirectories) {
+        for (MoveExecutor.Move move : moves) {
+            if (move.getResult() == MoveExecutor.Result.MOVED) {
+                sourceDirectories.add(move.getSource().getAbsoluteFile().getParentFile().toPath());
             }
-        } while (!list.isEmpty());
+        }
     }
 
     /**
-     * This helper method moves a file to the target file
+     * This helper method updates the tracks and the failed moves of a batch.
      *
-     * @param srcFile    the file to move
-     * @param targetFile the new location of the file
+     * @param session the session to the database
+     * @param moves   the executed moves
+     * @return the number of failed moves
      */
-    private void moveFile(File srcFile, File targetFile) {
-        if (configuration.getMoveActive()) {
-            try {
-                FileUtils.moveFile(srcFile, targetFile);
-            } catch (IOException e) {
-                logger.error("Could not move " + srcFile.getAbsolutePath()
-                        + " to " + targetFile.getAbsolutePath(), e);
+    private int updateTracks(Session session, List<MoveExecutor.Move> moves) {
+        int failed = 0;
+        Map<Long, FailedMove> failedMoves = loadFailedMoves(session, moves);
+        for (MoveExecutor.Move move : moves) {
+            MusicTrack track = move.getTrack();
+            FailedMove failedMove = failedMoves.get(track.getId());
+            if (move.getResult() == MoveExecutor.Result.MOVED) {
+                track.setFilePathCorrect(true);
+                track.setFilePath(track.getTargetFilePath());
+                track.setModificationDate(move.getTarget().lastModified());
+                metrics.fileMoved();
+                if (failedMove != null) {
+                    session.delete(failedMove);
+                }
+            } else {
+                if (failedMove == null) {
+                    failedMove = new FailedMove();
+                    failedMove.setTrackId(track.getId());
+                    failedMove.setAttempts(0);
+                }
+                failedMove.setFilePath(track.getFilePath());
+                failedMove.setTargetFilePath(track.getTargetFilePath());
+                failedMove.setReason(move.getMessage());
+                failedMove.setAttempts(failedMove.getAttempts() + 1);
+                failedMove.setLastAttempt(System.currentTimeMillis());
+                session.saveOrUpdate(failedMove);
+                failed++;
             }
         }
+        return failed;
+    }
+
+    private Map<Long, FailedMove> loadFailedMoves(Session session, List<MoveExecutor.Move> moves) {
+        List<Long> ids = new ArrayList<Long>(moves.size());
+        for (MoveExecutor.Move move : moves) {
+            ids.add(move.getTrack().getId());
+        }
+        Map<Long, FailedMove> failedMoves = new HashMap<Long, FailedMove>();
+        List list = session.createQuery("from FailedMove f where f.trackId in (:ids)")
+                .setParameterList("ids", ids)
+                .list();
+        for (Object obj : list) {
+            FailedMove failedMove = (FailedMove) obj;
+            failedMoves.put(failedMove.getTrackId(), failedMove);
+        }
+        return failedMoves;
     }
 
 }
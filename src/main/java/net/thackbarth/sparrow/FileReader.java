@@ -16,9 +16,13 @@
 
 package net.thackbarth.sparrow;
 
-import com.mpatric.mp3agic.*;
 import net.thackbarth.sparrow.dto.MusicTrack;
 import net.thackbarth.sparrow.generator.FilenameGenerator;
+import net.thackbarth.sparrow.metrics.SparrowMetrics;
+import net.thackbarth.sparrow.reader.FileSniffer;
+import net.thackbarth.sparrow.reader.Mp3TrackReader;
+import net.thackbarth.sparrow.reader.TrackReader;
+import net.thackbarth.sparrow.reader.TrackReaders;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,23 +33,42 @@ import javax.validation.Validation;
 import javax.validation.Validator;
 import java.io.File;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Set;
 
 /**
- * This class contains a method to read information from a music file.
+ * This class contains a method to read information from a music file. The tags are
+ * read by the TrackReader of the format of the file. A file without audio data is
+ * put into the quarantine before any parser sees it. A file whose tags could not be
+ * read or are not valid is put into the quarantine after parsing.
  */
 @Component
 public class FileReader {
 
-    public static final String EXCEPTION_MESSAGE_MP3 = "Could not load mp3 tags";
+    public static final String EXCEPTION_MESSAGE_MP3 = Mp3TrackReader.EXCEPTION_MESSAGE_MP3;
 
     private static Logger logger = LoggerFactory.getLogger(FileReader.class);
 
     @Autowired
     private FilenameGenerator filenameGenerator;
 
+    @Autowired
+    private TrackReaders readers;
+
+    @Autowired
+    private SparrowMetrics metrics;
+
+    @Autowired
+    private TargetPathRegistry targets;
+
+    @Autowired
+    private FileSniffer sniffer;
+
+    @Autowired
+    private Quarantine quarantine;
+
     private Validator validator = Validation.byDefaultProvider().configure()
             .buildValidatorFactory().getValidator();
 
@@ -61,73 +84,107 @@ public class FileReader {
     public boolean readFile(File fileToRead, File rootFolder, MusicTrack track) {
         boolean result = false;
         try {
-            Mp3File mp3file = new Mp3File(fileToRead.getAbsolutePath());
+            Path file = fileToRead.toPath().toAbsolutePath();
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            result = readFile(file, attributes, rootFolder.toPath().toAbsolutePath(), track);
+        } catch (IOException e) {
+            logger.error(EXCEPTION_MESSAGE_MP3, e);
+        }
+        return result;
+    }
 
-            track.setFilePath(fileToRead.getAbsolutePath().substring(rootFolder.getAbsolutePath().length()));
+    /**
+     * This method reads the tags from the given file and stores them
+     * to the MusicTrack object. The attributes of the file are not read again.
+     *
+     * @param file       the absolute path of the file to read
+     * @param attributes the attributes of the file
+     * @param rootFolder the absolute root of the scan. It will be used to calculate
+     *                   the correct file path.
+     * @param track      the object to store the information from the file
+     */
+    public boolean readFile(Path file, BasicFileAttributes attributes, Path rootFolder, MusicTrack track) {
+        boolean result = false;
+        String fileName = file.toString();
+        TrackReader trackReader = readers.forFile(file);
+        try {
+            track.setFilePath(fileName.substring(rootFolder.toString().length()));
             track.setFilePath(track.getFilePath().replace(File.separatorChar, '/'));
-            track.setModificationDate(fileToRead.lastModified());
-
-            copyTagField("Album", mp3file, track);
-            copyTagField("Artist", mp3file, track);
-            copyTagField("Genre", mp3file, track);
-            copyTagField("GenreDescription", mp3file, track);
-            copyTagField("Title", mp3file, track);
-            copyTagField("Track", mp3file, track);
-
-            Set<ConstraintViolation<MusicTrack>> violations = validator.validate(track);
-            if (violations.isEmpty()) {
-                // create Target Filename
-                String newFileName = filenameGenerator.generateName(track);
-                if ((newFileName == null) || (newFileName.isEmpty())) {
-                    throw new IllegalStateException("FilenameGenerator returns wrong value for "
-                            + fileToRead.getAbsolutePath());
-                }
-                track.setTargetFilePath(newFileName);
-                track.setFilePathCorrect(track.getFilePath().equals(track.getTargetFilePath()));
-                if (!track.isFilePathCorrect()) {
-                    int endPosition = fileToRead.getAbsolutePath().length() - track.getFilePath().length();
-                    String base = fileToRead.getAbsolutePath().substring(0, endPosition);
-                    String target = base.concat(track.getTargetFilePath());
-                    logger.info("Track must be moved to " + target + " -> " + track);
-                }
-                result = true;
+            track.setModificationDate(attributes.lastModifiedTime().toMillis());
+
+            if (sniffer.sniff(file) == FileSniffer.Kind.JUNK) {
+                logger.warn("File contains no audio data: " + fileName);
+                quarantine.add(track.getFilePath(), track.getModificationDate(), "No audio data");
+            } else if (trackReader == null) {
+                logger.error("No reader for the file " + fileName);
             } else {
-                logger.error("File is not valid: " + fileToRead.getAbsolutePath() + " - " + violations);
+                long start = System.nanoTime();
+                boolean tagsRead = trackReader.readTags(file, track);
+                metrics.fileRead(trackReader.getName(), System.nanoTime() - start);
+                if (!tagsRead) {
+                    quarantine.add(track.getFilePath(), track.getModificationDate(), "The tags could not be read");
+                } else {
+                    result = validate(fileName, track);
+                }
             }
         } catch (IOException e) {
             logger.error(EXCEPTION_MESSAGE_MP3, e);
-        } catch (UnsupportedTagException e) {
-            logger.error(EXCEPTION_MESSAGE_MP3, e);
-        } catch (InvalidDataException e) {
-            logger.error(EXCEPTION_MESSAGE_MP3, e);
         }
         return result;
     }
 
-    private void copyTagField(String fieldName, Mp3File mp3file, MusicTrack track) {
-        Object field = null;
-        try {
-            if (mp3file.hasId3v2Tag()) {
-                ID3v2 id3v2Tag = mp3file.getId3v2Tag();
-                Method method = ID3v2.class.getMethod("get" + fieldName);
-                field = method.invoke(id3v2Tag);
+    /**
+     * This method validates the track and generates its target. A track that is not
+     * valid is put into the quarantine.
+     */
+    private boolean validate(String fileName, MusicTrack track) {
+        boolean result = false;
+        Set<ConstraintViolation<MusicTrack>> violations = validator.validate(track);
+        if (violations.isEmpty()) {
+            // create Target Filename
+            String newFileName = filenameGenerator.generateName(track);
+            if ((newFileName == null) || (newFileName.isEmpty())) {
+                throw new IllegalStateException("FilenameGenerator returns wrong value for "
+                        + fileName);
+            }
+            newFileName = replaceExtension(newFileName, fileName);
+            // another track may have the same target
+            String previousTarget = track.getTargetFilePath();
+            track.setTargetFilePath(targets.claim(newFileName, track.getFilePath()));
+            if ((previousTarget != null) && (!previousTarget.equals(track.getTargetFilePath()))) {
+                targets.release(previousTarget, track.getFilePath());
             }
-            if ((null == field) && (mp3file.hasId3v1Tag())) {
-                ID3v1 id3v1Tag = mp3file.getId3v1Tag();
-                Method method = ID3v1.class.getMethod("get" + fieldName);
-                field = method.invoke(id3v1Tag);
+            track.setFilePathCorrect(track.getFilePath().equals(track.getTargetFilePath()));
+            if (!track.isFilePathCorrect()) {
+                int endPosition = fileName.length() - track.getFilePath().length();
+                String base = fileName.substring(0, endPosition);
+                String target = base.concat(track.getTargetFilePath());
+                logger.info("Track must be moved to " + target + " -> " + track);
             }
-            if (null != field) {
-                Method method = MusicTrack.class.getMethod("set" + fieldName, field.getClass());
-                method.invoke(track, field);
+            result = true;
+        } else {
+            logger.error("File is not valid: " + fileName + " - " + violations);
+            StringBuilder reason = new StringBuilder("Not valid:");
+            for (ConstraintViolation<MusicTrack> violation : violations) {
+                reason.append(' ').append(violation.getPropertyPath()).append(' ').append(violation.getMessage());
             }
-        } catch (NoSuchMethodException nsmEx) {
-            logger.error("Could not copy field " + fieldName + "!", nsmEx);
-        } catch (InvocationTargetException itEx) {
-            logger.error("Could not copy field " + fieldName + "!", itEx);
-        } catch (IllegalAccessException iaEx) {
-            logger.error("Could not copy field " + fieldName + "!", iaEx);
+            quarantine.add(track.getFilePath(), track.getModificationDate(), reason.toString());
+        }
+        return result;
+    }
+
+    /**
+     * This method replaces the extension of the generated name by the extension of
+     * the file, the configuration of the names only knows mp3 files.
+     */
+    /* package */ static String replaceExtension(String newFileName, String fileName) {
+        String result = newFileName;
+        int extension = fileName.lastIndexOf('.');
+        int newExtension = newFileName.lastIndexOf('.');
+        if ((extension > fileName.lastIndexOf(File.separatorChar)) && (newExtension > newFileName.lastIndexOf('/'))) {
+            result = newFileName.substring(0, newExtension) + fileName.substring(extension).toLowerCase();
         }
+        return result;
     }
 
 }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class holds the fingerprints of the stored tracks, so the workers can find
+ * the track of a renamed file without asking the database for every new file.
+ * <p/>
+ * Like the TrackIndex it is an open addressing hash table over parallel arrays,
+ * one slot needs 16 bytes. A fingerprint can belong to several tracks, e.g. two
+ * copies of the same file, so a lookup returns all ids of the fingerprint. Every
+ * track can only be taken once per crawl.
+ */
+public final class FingerprintIndex {
+
+    private static final long EMPTY = 0L;
+
+    /* the id of a track that was found at a new path */
+    private static final long TAKEN = -1L;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] fingerprints;
+
+    private long[] ids;
+
+    private int size = 0;
+
+    /**
+     * This constructor creates an index for the expected number of tracks.
+     *
+     * @param expectedSize the expected number of tracks
+     */
+    public FingerprintIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * This method adds a track to the index.
+     *
+     * @param fingerprint the fingerprint of the audio data
+     * @param id          the id of the track
+     */
+    public synchronized void put(long fingerprint, long id) {
+        if ((size + 1) * 4L > ids.length * 3L) {
+            resize();
+        }
+        insert(fingerprint, id);
+    }
+
+    /**
+     * This method returns the ids of the tracks with the fingerprint that are not
+     * taken yet.
+     *
+     * @param fingerprint the fingerprint of the audio data
+     * @return the ids, the list is empty if no track has the fingerprint
+     */
+    public synchronized List<Long> findIds(long fingerprint) {
+        List<Long> result = new ArrayList<Long>();
+        int mask = ids.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (ids[slot] != EMPTY) {
+            if ((fingerprints[slot] == fingerprint) && (ids[slot] != TAKEN)) {
+                result.add(ids[slot]);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return result;
+    }
+
+    /**
+     * This method takes the track, so it is not found again.
+     *
+     * @param fingerprint the fingerprint of the audio data
+     * @param id          the id of the track
+     * @return false if the track was already taken
+     */
+    public synchronized boolean take(long fingerprint, long id) {
+        boolean result = false;
+        int mask = ids.length - 1;
+        int slot = (int) fingerprint & mask;
+        while ((!result) && (ids[slot] != EMPTY)) {
+            if ((fingerprints[slot] == fingerprint) && (ids[slot] == id)) {
+                ids[slot] = TAKEN;
+                result = true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return result;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void insert(long fingerprint, long id) {
+        int mask = ids.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (ids[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        fingerprints[slot] = fingerprint;
+        ids[slot] = id;
+        size++;
+    }
+
+    private void resize() {
+        long[] oldFingerprints = fingerprints;
+        long[] oldIds = ids;
+        allocate(oldIds.length << 1);
+        for (int i = 0; i < oldIds.length; i++) {
+            if ((oldIds[i] != EMPTY) && (oldIds[i] != TAKEN)) {
+                insert(oldFingerprints[i], oldIds[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        fingerprints = new long[capacity];
+        ids = new long[capacity];
+        size = 0;
+    }
+}
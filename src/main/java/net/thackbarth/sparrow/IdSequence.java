@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * This class keeps the ids of the seqhilo generators above the stored ids.
+ * <p/>
+ * Older databases got their ids from identity columns and have no sequence, so
+ * the new sequence starts at 1 and the generators would hand out ids that are
+ * already used. At startup the sequence is moved behind the highest stored id.
+ * Nothing is changed if the sequence is already ahead.
+ */
+@Component
+public class IdSequence implements InitializingBean {
+
+    private static Logger logger = LoggerFactory.getLogger(IdSequence.class);
+
+    /* the ids of one sequence value, max_lo of the generators + 1 */
+    private static final long IDS_PER_VALUE = 50;
+
+    private static final String[] ENTITIES = {"MusicTrack", "DirectoryCheckpoint", "FailedMove", "QuarantinedFile"};
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    /**
+     * This method moves the sequence behind the highest stored id if needed.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        Session session = sessionFactory.openSession();
+        try {
+            long maxId = 0;
+            for (String entity : ENTITIES) {
+                Number id = (Number) session.createQuery("select max(e.id) from " + entity + " e").uniqueResult();
+                if (id != null) {
+                    maxId = Math.max(maxId, id.longValue());
+                }
+            }
+            Number current = (Number) session.createSQLQuery("select current_value from information_schema.sequences"
+                    + " where sequence_name = 'HIBERNATE_SEQUENCE'").uniqueResult();
+            long next = (current == null) ? 1 : current.longValue() + 1;
+            if (next * IDS_PER_VALUE <= maxId) {
+                long restart = maxId / IDS_PER_VALUE + 1;
+                logger.info("Move the id sequence from " + next + " to " + restart);
+                session.createSQLQuery("alter sequence hibernate_sequence restart with " + restart).executeUpdate();
+            }
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.metrics.LatencyHistogram;
+import net.thackbarth.sparrow.mover.MoveStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class moves the files of a batch with several threads.
+ * <p/>
+ * The moves are grouped by the target directory, so every directory is created
+ * only once. A move whose target is the source of another move of the batch waits
+ * until the other file is moved. A move is not executed if its target is claimed
+ * by another move of the same run, if it is part of a cycle or if the target
+ * already exists. The file itself is moved by the MoveStrategy.
+ */
+class MoveExecutor {
+
+    /**
+     * The result of a move.
+     */
+    enum Result {
+        PENDING, MOVED, FAILED, CONFLICT
+    }
+
+    /**
+     * This class holds a move of a track.
+     */
+    static class Move {
+
+        private final MusicTrack track;
+
+        private final File source;
+
+        private final File target;
+
+        private volatile Result result = Result.PENDING;
+
+        private volatile String message;
+
+        Move(MusicTrack track, File source, File target) {
+            this.track = track;
+            this.source = source;
+            this.target = target;
+        }
+
+        MusicTrack getTrack() {
+            return track;
+        }
+
+        File getSource() {
+            return source;
+        }
+
+        File getTarget() {
+            return target;
+        }
+
+        Result getResult() {
+            return result;
+        }
+
+        String getMessage() {
+            return message;
+        }
+    }
+
+    private static Logger logger = LoggerFactory.getLogger(MoveExecutor.class);
+
+    private final ExecutorService executor;
+
+    private final boolean active;
+
+    private final MoveStrategy strategy;
+
+    private final LatencyHistogram latency;
+
+    private final Set<File> claimedTargets = new HashSet<File>();
+
+    /**
+     * This constructor starts the threads.
+     *
+     * @param concurrency the maximum number of moves at the same time
+     * @param active      false if the files should not be touched
+     * @param strategy    the strategy that moves a single file
+     * @param latency     the histogram for the durations of the moves
+     */
+    MoveExecutor(int concurrency, boolean active, MoveStrategy strategy, LatencyHistogram latency) {
+        this.active = active;
+        this.strategy = strategy;
+        this.latency = latency;
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Math.max(concurrency, 1), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "sparrow-move-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * This method executes the moves of a batch. The result of every move is set
+     * when the method returns.
+     *
+     * @param moves the moves of the batch
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    void execute(List<Move> moves) throws InterruptedException {
+        List<Move> pending = claimTargets(moves);
+        while (!pending.isEmpty()) {
+            Set<File> sources = new HashSet<File>();
+            for (Move move : pending) {
+                sources.add(move.source);
+            }
+            List<Move> ready = new ArrayList<Move>();
+            List<Move> waiting = new ArrayList<Move>();
+            for (Move move : pending) {
+                if (sources.contains(move.target)) {
+                    waiting.add(move);
+                } else {
+                    ready.add(move);
+                }
+            }
+            if (ready.isEmpty()) {
+                for (Move move : waiting) {
+                    conflict(move, "is part of a cycle");
+                }
+                waiting.clear();
+            } else {
+                executeReady(ready);
+            }
+            pending = waiting;
+        }
+    }
+
+    /**
+     * This method stops the threads.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<Move> claimTargets(List<Move> moves) {
+        List<Move> pending = new ArrayList<Move>(moves.size());
+        for (Move move : moves) {
+            if (claimedTargets.add(move.target)) {
+                pending.add(move);
+            } else {
+                conflict(move, "is already the target of another file");
+            }
+        }
+        return pending;
+    }
+
+    private void executeReady(List<Move> moves) throws InterruptedException {
+        if (active) {
+            Map<File, List<Move>> directories = new LinkedHashMap<File, List<Move>>();
+            for (Move move : moves) {
+                File directory = move.target.getParentFile();
+                List<Move> group = directories.get(directory);
+                if (group == null) {
+                    group = new ArrayList<Move>();
+                    directories.put(directory, group);
+                }
+                group.add(move);
+            }
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (Map.Entry<File, List<Move>> entry : directories.entrySet()) {
+                if (!entry.getKey().exists()) {
+                    futures.add(executor.submit(createDirectory(entry.getKey(), entry.getValue())));
+                }
+            }
+            await(futures);
+            for (Move move : moves) {
+                if (move.result == Result.PENDING) {
+                    futures.add(executor.submit(moveFile(move)));
+                }
+            }
+            await(futures);
+        } else {
+            for (Move move : moves) {
+                logger.info("Move " + move.source.getAbsolutePath() + " to " + move.target.getAbsolutePath());
+                move.result = Result.MOVED;
+            }
+        }
+    }
+
+    private Runnable createDirectory(final File directory, final List<Move> group) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                // another thread may create a common parent at the same time
+                if (!directory.mkdirs() && !directory.isDirectory()) {
+                    logger.error("Could not create " + directory.getAbsolutePath());
+                    for (Move move : group) {
+                        fail(move, "The directory could not be created");
+                    }
+                }
+            }
+        };
+    }
+
+    private Runnable moveFile(final Move move) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (!move.source.exists()) {
+                    logger.error("Could not move " + move.source.getAbsolutePath() + ", it does not exist");
+                    fail(move, "The file does not exist");
+                } else if (move.target.exists()) {
+                    conflict(move, "already exists");
+                } else {
+                    logger.info("Move " + move.source.getAbsolutePath() + " to " + move.target.getAbsolutePath());
+                    long start = System.nanoTime();
+                    try {
+                        strategy.move(move.source, move.target);
+                        latency.record(System.nanoTime() - start);
+                        move.result = Result.MOVED;
+                    } catch (IOException e) {
+                        logger.error("Could not move " + move.source.getAbsolutePath()
+                                + " to " + move.target.getAbsolutePath(), e);
+                        fail(move, e.toString());
+                    }
+                }
+            }
+        };
+    }
+
+    private void conflict(Move move, String reason) {
+        logger.error("Could not move " + move.source.getAbsolutePath() + ", the target "
+                + move.target.getAbsolutePath() + " " + reason);
+        move.message = "The target " + reason;
+        move.result = Result.CONFLICT;
+    }
+
+    private void fail(Move move, String message) {
+        move.message = message;
+        move.result = Result.FAILED;
+    }
+
+    private void await(List<Future<?>> futures) throws InterruptedException {
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                logger.error("A move failed", e.getCause());
+            }
+        }
+        futures.clear();
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class writes a journal of the moves, so the database can be repaired if
+ * the process dies while files are moved.
+ * <p/>
+ * The intent of every move of a batch is written to the disk before the files are
+ * moved. After the tracks of the batch are stored, a commit is written for every
+ * moved file. The journal is emptied when all files are moved. At startup the
+ * moves of a journal that was not emptied are checked: a track whose file is only
+ * found at its target is updated. If the file is found at both places with the same
+ * content, the copy to another file system was finished and only the source was not
+ * deleted, so the source is deleted and the track is updated. In every other case
+ * the track is kept as it is and no file is touched.
+ */
+@Component
+public class MoveJournal implements InitializingBean {
+
+    private static Logger logger = LoggerFactory.getLogger(MoveJournal.class);
+
+    private static final byte INTENT = 'I';
+
+    private static final byte COMMIT = 'C';
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private SparrowConfiguration configuration;
+
+    private FileChannel channel;
+
+    /**
+     * This method repairs the database after a crash.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        recover();
+    }
+
+    /**
+     * This method opens the journal for a new run.
+     *
+     * @throws IOException if the journal could not be opened
+     */
+    /* package */ void open() throws IOException {
+        channel = FileChannel.open(getPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * This method writes the intents of the moves and waits until they are on the disk.
+     *
+     * @param moves the moves of the batch
+     * @throws IOException if the journal could not be written
+     */
+    /* package */ void writeIntents(List<MoveExecutor.Move> moves) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (MoveExecutor.Move move : moves) {
+            MusicTrack track = move.getTrack();
+            out.writeByte(INTENT);
+            out.writeLong(track.getId());
+            out.writeUTF(track.getFilePath());
+            out.writeUTF(track.getTargetFilePath());
+        }
+        write(bytes.toByteArray());
+        channel.force(false);
+    }
+
+    /**
+     * This method writes the commits of the moved files after the tracks are stored.
+     *
+     * @param moves the moves of the batch
+     * @throws IOException if the journal could not be written
+     */
+    /* package */ void writeCommits(List<MoveExecutor.Move> moves) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (MoveExecutor.Move move : moves) {
+            if (move.getResult() == MoveExecutor.Result.MOVED) {
+                out.writeByte(COMMIT);
+                out.writeLong(move.getTrack().getId());
+            }
+        }
+        write(bytes.toByteArray());
+    }
+
+    /**
+     * This method closes the journal. It is emptied if the run is complete.
+     *
+     * @param complete true if all moves are stored in the database
+     */
+    /* package */ void close(boolean complete) {
+        if (channel != null) {
+            try {
+                if (complete) {
+                    channel.truncate(0);
+                    channel.force(false);
+                }
+                channel.close();
+            } catch (IOException e) {
+                logger.error("Could not close the move journal", e);
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * This method checks the moves of a journal that was not emptied.
+     */
+    /* package */ void recover() {
+        File file = getPath().toFile();
+        if (file.length() > 0) {
+            Map<Long, String[]> intents = new LinkedHashMap<Long, String[]>();
+            Set<Long> commits = new HashSet<Long>();
+            read(file, intents, commits);
+            logger.warn("The last move of the files was not finished, checking " + intents.size()
+                    + " moves (" + (intents.size() - commits.size()) + " without commit)");
+            Session session = sessionFactory.openSession();
+            try {
+                int repaired = 0;
+                for (Map.Entry<Long, String[]> entry : intents.entrySet()) {
+                    // the commits are checked too, the database writes its log with a delay
+                    if (repair(session, entry.getKey(), entry.getValue()[0], entry.getValue()[1])) {
+                        repaired++;
+                    }
+                }
+                session.flush();
+                logger.warn("Repaired tracks: " + repaired);
+            } finally {
+                session.close();
+            }
+            if (!file.delete()) {
+                logger.error("Could not delete the move journal " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private boolean repair(Session session, Long trackId, String filePath, String targetFilePath) {
+        boolean repaired = false;
+        MusicTrack track = (MusicTrack) session.get(MusicTrack.class, trackId);
+        if ((track != null) && filePath.equals(track.getFilePath())) {
+            File source = new File(configuration.getDataFolder() + filePath);
+            File target = new File(configuration.getDataFolder() + targetFilePath);
+            Number owners = (Number) session.createQuery("select count(t) from MusicTrack t where t.filePath = :path")
+                    .setString("path", targetFilePath)
+                    .uniqueResult();
+            if (target.exists() && !source.exists() && (owners.intValue() == 0)) {
+                logger.info("Track " + trackId + " was moved to " + targetFilePath);
+                updateTrack(track, targetFilePath, target);
+                repaired = true;
+            } else if (target.exists() && source.exists() && (owners.intValue() == 0) && sameContent(source, target)) {
+                // the copy to another file system was finished, but the source was not deleted
+                if (source.delete()) {
+                    logger.info("Track " + trackId + " was copied to " + targetFilePath + ", the source is deleted");
+                    updateTrack(track, targetFilePath, target);
+                    repaired = true;
+                } else {
+                    logger.error("Could not delete " + source.getAbsolutePath());
+                }
+            } else if (target.exists() && source.exists()) {
+                logger.warn("Track " + trackId + " and its target " + targetFilePath + " both exist");
+            }
+        }
+        return repaired;
+    }
+
+    private void updateTrack(MusicTrack track, String targetFilePath, File target) {
+        track.setFilePath(targetFilePath);
+        track.setTargetFilePath(targetFilePath);
+        track.setFilePathCorrect(true);
+        track.setModificationDate(target.lastModified());
+    }
+
+    private boolean sameContent(File source, File target) {
+        boolean result = false;
+        try {
+            result = FileUtils.contentEquals(source, target);
+        } catch (IOException e) {
+            logger.error("Could not compare " + source.getAbsolutePath() + " with " + target.getAbsolutePath(), e);
+        }
+        return result;
+    }
+
+    private void read(File file, Map<Long, String[]> intents, Set<Long> commits) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    long trackId = in.readLong();
+                    if (type == INTENT) {
+                        intents.put(trackId, new String[]{in.readUTF(), in.readUTF()});
+                    } else if (type == COMMIT) {
+                        commits.add(trackId);
+                    } else {
+                        throw new IOException("Unknown entry " + type);
+                    }
+                }
+            } finally {
+                in.close();
+            }
+        } catch (EOFException e) {
+            // the end of the journal, the last entry may be incomplete
+            logger.debug("End of the move journal");
+        } catch (IOException e) {
+            logger.error("Could not read the move journal completely", e);
+        }
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Path getPath() {
+        return Paths.get(configuration.getMoveJournal());
+    }
+}
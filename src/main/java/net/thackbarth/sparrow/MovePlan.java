@@ -0,0 +1,194 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * This class writes and reads a move plan. A plan is a text file with one pending
+ * move per line: the id of the track, the path of the file and its target, separated
+ * by a tab. The paths are relative to the data folder. Lines starting with '#' are
+ * comments, so a plan can be reviewed and shortened before it is applied.
+ */
+class MovePlan {
+
+    private static Logger logger = LoggerFactory.getLogger(MovePlan.class);
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final String SEPARATOR = "\t";
+
+    private static final String COMMENT = "#";
+
+    /**
+     * hidden constructor
+     */
+    private MovePlan() {
+        // only static methods
+    }
+
+    /**
+     * This method writes all pending moves of the database to the plan. The tracks
+     * are read in batches, so the plan can be larger than the memory.
+     *
+     * @param session    the session to the database
+     * @param batchSize  the number of tracks per batch
+     * @param dataFolder the data folder of the paths
+     * @param file       the plan file
+     * @return the number of written moves
+     * @throws IOException if the plan could not be written
+     */
+    static int write(Session session, int batchSize, String dataFolder, Path file) throws IOException {
+        int count = 0;
+        MoveQueue queue = new MoveQueue(session, batchSize, 0);
+        BufferedWriter out = Files.newBufferedWriter(file, CHARSET);
+        try {
+            out.write(COMMENT + " sparrow move plan of " + dataFolder);
+            out.newLine();
+            List<MusicTrack> tracks = queue.nextBatch();
+            while (!tracks.isEmpty()) {
+                for (MusicTrack track : tracks) {
+                    out.write(track.getId() + SEPARATOR + track.getFilePath() + SEPARATOR
+                            + track.getTargetFilePath());
+                    out.newLine();
+                }
+                count += tracks.size();
+                session.clear();
+                tracks = queue.nextBatch();
+            }
+        } finally {
+            out.close();
+        }
+        return count;
+    }
+
+    /**
+     * This class reads the moves of a plan in batches. A move is skipped if its track
+     * was changed or removed since the plan was written.
+     */
+    static class Reader implements MoveSource, Closeable {
+
+        private final Session session;
+
+        private final int batchSize;
+
+        private final BufferedReader in;
+
+        private int skipped = 0;
+
+        private boolean finished = false;
+
+        /**
+         * This constructor opens the plan.
+         *
+         * @param session   the session to the database
+         * @param batchSize the number of moves per batch
+         * @param file      the plan file
+         * @throws IOException if the plan could not be opened
+         */
+        Reader(Session session, int batchSize, Path file) throws IOException {
+            this.session = session;
+            this.batchSize = batchSize;
+            this.in = Files.newBufferedReader(file, CHARSET);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public List<MusicTrack> nextBatch() throws IOException {
+            List<MusicTrack> tracks = new ArrayList<MusicTrack>(batchSize);
+            while (tracks.isEmpty() && !finished) {
+                Map<Long, String[]> moves = readMoves();
+                if (!moves.isEmpty()) {
+                    List list = session.createQuery("from MusicTrack t where t.id in (:ids)")
+                            .setParameterList("ids", moves.keySet())
+                            .list();
+                    for (Object obj : list) {
+                        MusicTrack track = (MusicTrack) obj;
+                        String[] move = moves.remove(track.getId());
+                        if (!track.isFilePathCorrect() && move[0].equals(track.getFilePath())
+                                && move[1].equals(track.getTargetFilePath())) {
+                            tracks.add(track);
+                        } else {
+                            logger.warn("Skip the move of " + move[0] + ", the track was changed");
+                            skipped++;
+                        }
+                    }
+                    for (String[] move : moves.values()) {
+                        logger.warn("Skip the move of " + move[0] + ", the track does not exist");
+                        skipped++;
+                    }
+                }
+            }
+            return tracks;
+        }
+
+        private Map<Long, String[]> readMoves() throws IOException {
+            Map<Long, String[]> moves = new LinkedHashMap<Long, String[]>();
+            while ((moves.size() < batchSize) && !finished) {
+                String line = in.readLine();
+                if (line == null) {
+                    finished = true;
+                } else if (!line.trim().isEmpty() && !line.startsWith(COMMENT)) {
+                    String[] fields = line.split(SEPARATOR);
+                    Long trackId = (fields.length == 3) ? parseId(fields[0]) : null;
+                    if (trackId == null) {
+                        logger.warn("Skip the line '" + line + "' of the plan, it is not a move");
+                        skipped++;
+                    } else {
+                        moves.put(trackId, new String[]{fields[1], fields[2]});
+                    }
+                }
+            }
+            return moves;
+        }
+
+        private Long parseId(String value) {
+            Long trackId = null;
+            try {
+                trackId = Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                logger.debug("Not a track id: " + value);
+            }
+            return trackId;
+        }
+
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
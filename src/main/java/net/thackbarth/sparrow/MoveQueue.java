@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.hibernate.Session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class reads the tracks that have to be moved in batches ordered by the id.
+ * Every batch starts after the last id of the previous batch, so a track is read
+ * only once per run, even if its move failed and it is still not at its target.
+ * <p/>
+ * A track whose move failed is skipped until the retry delay multiplied by the
+ * number of failed attempts has passed since the last attempt, so a move that
+ * keeps failing is not tried again in every run.
+ */
+class MoveQueue implements MoveSource {
+
+    private static final String QUERY = "from MusicTrack t where t.filePathCorrect = false"
+            + " and t.id > :lastId and not exists (select f.id from FailedMove f where f.trackId = t.id"
+            + " and f.lastAttempt + f.attempts * :retryDelay > :now) order by t.id";
+
+    private final Session session;
+
+    private final int batchSize;
+
+    private final long retryDelay;
+
+    private final long now = System.currentTimeMillis();
+
+    private long lastId = Long.MIN_VALUE;
+
+    private boolean finished = false;
+
+    /**
+     * This constructor prepares the queue.
+     *
+     * @param session    the session to the database
+     * @param batchSize  the number of tracks per batch
+     * @param retryDelay the delay in milliseconds before a failed move is tried again,
+     *                   0 to read all failed moves
+     */
+    MoveQueue(Session session, int batchSize, long retryDelay) {
+        this.session = session;
+        this.batchSize = batchSize;
+        this.retryDelay = retryDelay;
+    }
+
+    /**
+     * This method reads the next batch.
+     *
+     * @return the tracks to move or an empty list at the end
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<MusicTrack> nextBatch() {
+        List<MusicTrack> tracks;
+        if (finished) {
+            tracks = Collections.emptyList();
+        } else {
+            tracks = session.createQuery(QUERY)
+                    .setLong("lastId", lastId)
+                    .setLong("retryDelay", retryDelay)
+                    .setLong("now", now)
+                    .setMaxResults(batchSize)
+                    .list();
+            if (tracks.size() < batchSize) {
+                finished = true;
+            }
+            if (!tracks.isEmpty()) {
+                lastId = tracks.get(tracks.size() - 1).getId();
+            }
+        }
+        return tracks;
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * This interface delivers the tracks that have to be moved in batches.
+ */
+interface MoveSource {
+
+    /**
+     * This method reads the next batch.
+     *
+     * @return the tracks to move or an empty list at the end
+     * @throws IOException if the tracks could not be read
+     */
+    List<MusicTrack> nextBatch() throws IOException;
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.QuarantinedFile;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class holds the files that are not read by the crawler, e.g. files without
+ * audio data. A file is skipped until its modification date changes.
+ * <p/>
+ * The files can be listed and released from the command line. The stored files are
+ * loaded at the start of a crawl and kept up to date by store, so the watcher only
+ * loads them once. The workers add the new
+ * files to a queue, they are stored by the crawler thread at the end of the crawl
+ * together with the removal of the files that changed.
+ */
+@Component
+public class Quarantine {
+
+    private static Logger logger = LoggerFactory.getLogger(Quarantine.class);
+
+    /* the length of the column */
+    private static final int MAX_REASON = 255;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private SparrowConfiguration configuration;
+
+    /* the file path mapped to the modification date */
+    private final ConcurrentMap<String, Long> files = new ConcurrentHashMap<String, Long>();
+
+    private final Queue<QuarantinedFile> added = new ConcurrentLinkedQueue<QuarantinedFile>();
+
+    private final Set<String> released = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private volatile boolean loaded = false;
+
+    /**
+     * This method loads the stored files before a crawl.
+     */
+    public void load() {
+        files.clear();
+        added.clear();
+        released.clear();
+        StatelessSession loadSession = sessionFactory.openStatelessSession();
+        try {
+            ScrollableResults results = loadSession
+                    .createQuery("select q.filePath, q.modificationDate from QuarantinedFile q")
+                    .setFetchSize(configuration.getBatchSize())
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            while (results.next()) {
+                files.put((String) results.get(0), (Long) results.get(1));
+            }
+            results.close();
+            loaded = true;
+        } finally {
+            loadSession.close();
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * This method checks if the file is in the quarantine. A file that changed since
+     * it was added is released.
+     *
+     * @param filePath         the file path relative to the data folder
+     * @param modificationDate the current modification date of the file
+     * @return true if the file must not be read
+     */
+    public boolean contains(String filePath, long modificationDate) {
+        boolean result = false;
+        Long date = files.get(filePath);
+        if (date != null) {
+            result = (date == modificationDate);
+            if (!result) {
+                released.add(filePath);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method adds a file to the quarantine. It can be called by several threads.
+     *
+     * @param filePath         the file path relative to the data folder
+     * @param modificationDate the modification date of the file
+     * @param reason           the reason why the file is not read
+     */
+    public void add(String filePath, long modificationDate, String reason) {
+        QuarantinedFile file = new QuarantinedFile();
+        file.setFilePath(filePath);
+        file.setModificationDate(modificationDate);
+        file.setReason((reason.length() > MAX_REASON) ? reason.substring(0, MAX_REASON) : reason);
+        file.setSince(System.currentTimeMillis());
+        added.add(file);
+    }
+
+    /**
+     * This method stores the added files and removes the released files.
+     *
+     * @param session the session to the database
+     */
+    public void store(Session session) {
+        Set<String> paths = new HashSet<String>(released);
+        for (QuarantinedFile file : added) {
+            paths.add(file.getFilePath());
+        }
+        if (!paths.isEmpty()) {
+            List<String> pathList = new ArrayList<String>(paths);
+            int batchSize = configuration.getBatchSize();
+            for (int start = 0; start < pathList.size(); start += batchSize) {
+                session.createQuery("delete from QuarantinedFile q where q.filePath in (:paths)")
+                        .setParameterList("paths", pathList.subList(start, Math.min(start + batchSize, pathList.size())))
+                        .executeUpdate();
+            }
+            for (String path : released) {
+                files.remove(path);
+            }
+            int count = 0;
+            QuarantinedFile file = added.poll();
+            while (file != null) {
+                session.save(file);
+                files.put(file.getFilePath(), file.getModificationDate());
+                count++;
+                if ((count % batchSize) == 0) {
+                    session.flush();
+                    session.clear();
+                }
+                file = added.poll();
+            }
+            session.flush();
+            session.clear();
+            logger.info("Quarantined files: " + count + " added, " + released.size() + " released");
+            released.clear();
+        }
+    }
+
+    /**
+     * This method returns all stored files ordered by the path.
+     *
+     * @return the files of the quarantine
+     */
+    @SuppressWarnings("unchecked")
+    public List<QuarantinedFile> list() {
+        Session session = sessionFactory.openSession();
+        try {
+            return session.createQuery("from QuarantinedFile q order by q.filePath").list();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * This method removes all files from the quarantine, so they are read again.
+     *
+     * @return the paths of the released files relative to the data folder
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> release() {
+        List<String> paths;
+        Session session = sessionFactory.openSession();
+        try {
+            paths = session.createQuery("select q.filePath from QuarantinedFile q order by q.filePath").list();
+            session.createQuery("delete from QuarantinedFile").executeUpdate();
+        } finally {
+            session.close();
+        }
+        files.clear();
+        logger.info("Released files: " + paths.size());
+        return paths;
+    }
+
+    public int size() {
+        return files.size();
+    }
+}
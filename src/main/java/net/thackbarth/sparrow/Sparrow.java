@@ -16,12 +16,15 @@
 
 package net.thackbarth.sparrow;
 
+import net.thackbarth.sparrow.dto.QuarantinedFile;
 import org.apache.commons.cli.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.support.AbstractApplicationContext;
 import org.springframework.context.support.ClassPathXmlApplicationContext;
 
+import java.nio.file.Paths;
+
 /**
  * This is the main class of the sparrow tool.
  */
@@ -52,6 +55,7 @@ public final class Sparrow {
         PosixParser parser = new PosixParser();
 
         SparrowMode mode = SparrowMode.CRAWL;
+        String planFile = null;
         // analyze the arguments
         try {
             CommandLine commandLine = parser.parse(options, args);
@@ -66,6 +70,28 @@ public final class Sparrow {
             }
             if ((!processed) && (commandLine.hasOption('c'))) {
                 mode = SparrowMode.CLEAN;
+                processed = true;
+            }
+            if ((!processed) && (commandLine.hasOption('p'))) {
+                mode = SparrowMode.PLAN;
+                planFile = commandLine.getOptionValue('p');
+                processed = true;
+            }
+            if ((!processed) && (commandLine.hasOption('x'))) {
+                mode = SparrowMode.APPLY;
+                planFile = commandLine.getOptionValue('x');
+                processed = true;
+            }
+            if ((!processed) && (commandLine.hasOption('q'))) {
+                mode = SparrowMode.QUARANTINE;
+                processed = true;
+            }
+            if ((!processed) && (commandLine.hasOption('r'))) {
+                mode = SparrowMode.RETRY;
+                processed = true;
+            }
+            if ((!processed) && (commandLine.hasOption('d'))) {
+                mode = SparrowMode.WATCH;
                 // processed = true;
             }
         } catch (ParseException e) {
@@ -78,11 +104,38 @@ public final class Sparrow {
             SparrowCrawler crawler = (SparrowCrawler) context.getBean("crawler");
             crawler.startCrawling();
         }
+        if (SparrowMode.PLAN.equals(mode)) {
+            // crawl and write the moves to the plan file
+            SparrowCrawler crawler = (SparrowCrawler) context.getBean("crawler");
+            crawler.writePlan(Paths.get(planFile));
+        }
+        if (SparrowMode.APPLY.equals(mode)) {
+            // execute the moves of the plan file
+            SparrowCrawler crawler = (SparrowCrawler) context.getBean("crawler");
+            crawler.applyPlan(Paths.get(planFile));
+        }
+        if (SparrowMode.QUARANTINE.equals(mode)) {
+            // list the files that are not read
+            Quarantine quarantine = context.getBean(Quarantine.class);
+            for (QuarantinedFile file : quarantine.list()) {
+                progress.info(file.getFilePath() + " - " + file.getReason());
+            }
+        }
+        if (SparrowMode.RETRY.equals(mode)) {
+            // read the files of the quarantine again
+            SparrowCrawler crawler = (SparrowCrawler) context.getBean("crawler");
+            crawler.retryQuarantine();
+        }
         if (SparrowMode.CLEAN.equals(mode)) {
             // execute the cleaner process
             DatabaseCleaner cleaner = (DatabaseCleaner) context.getBean("cleaner");
             cleaner.clean();
         }
+        if (SparrowMode.WATCH.equals(mode)) {
+            // execute the watch process until the tool is stopped
+            SparrowWatcher watcher = (SparrowWatcher) context.getBean("watcher");
+            watcher.startWatching();
+        }
     }
 
     /* package */
@@ -92,6 +145,13 @@ public final class Sparrow {
         options.addOption("f", "folder", true, "the folder to sort");
         options.addOption("h", "help", false, "show this help");
         options.addOption("l", "limit", true, "maximum number of files to move");
+        options.addOption("w", "workers", true, "number of threads reading the files");
+        options.addOption("a", "full", false, "crawl all directories, even the unchanged ones");
+        options.addOption("d", "watch", false, "watch the data folder and sort changed files");
+        options.addOption("p", "plan", true, "crawl the folder and write the moves to the given plan file");
+        options.addOption("x", "apply", true, "move the files of the given plan file");
+        options.addOption("q", "quarantine", false, "list the files that are not read");
+        options.addOption("r", "retry", false, "read the files of the quarantine again");
         return options;
     }
 
@@ -100,6 +160,10 @@ public final class Sparrow {
         if ((commandLine != null) && (configuration != null)) {
             processDataFolder(commandLine, configuration);
             processScanLimit(commandLine, configuration);
+            processWorkerCount(commandLine, configuration);
+            if (commandLine.hasOption("a")) {
+                configuration.setFullScan(true);
+            }
         }
     }
 
@@ -121,4 +185,16 @@ public final class Sparrow {
         }
     }
 
+    private static void processWorkerCount(CommandLine commandLine, SparrowConfiguration configuration) {
+        if (commandLine.hasOption("w")) {
+            String value = commandLine.getOptionValue("w");
+            try {
+                int workerCount = Integer.parseInt(value);
+                configuration.setWorkerCount(workerCount);
+            } catch (NumberFormatException nfEx) {
+                progress.error("Could not parse the given number of workers: '" + value + "'");
+            }
+        }
+    }
+
 }
@@ -37,6 +37,39 @@ public class SparrowConfiguration {
     @Value("${move_active}")
     private Boolean moveActive;
 
+    @Value("${worker_count}")
+    private Integer workerCount;
+
+    @Value("${full_scan}")
+    private Boolean fullScan;
+
+    @Value("${watch_delay}")
+    private Long watchDelay;
+
+    @Value("${check_workers}")
+    private Integer checkWorkers;
+
+    @Value("${move_workers}")
+    private Integer moveWorkers;
+
+    @Value("${move_journal}")
+    private String moveJournal;
+
+    @Value("${full_cleanup}")
+    private Boolean fullCleanup;
+
+    @Value("${metrics_file}")
+    private String metricsFile;
+
+    @Value("${fingerprint}")
+    private Boolean fingerprint;
+
+    @Value("${retry_delay}")
+    private Long retryDelay;
+
+    @Value("${unique_file_path}")
+    private Boolean uniqueFilePath;
+
     public SparrowConfiguration() {
         // nothing
     }
@@ -72,4 +105,92 @@ public class SparrowConfiguration {
     public void setMoveActive(Boolean moveActive) {
         this.moveActive = moveActive;
     }
+
+    public Integer getWorkerCount() {
+        return workerCount;
+    }
+
+    public void setWorkerCount(Integer workerCount) {
+        this.workerCount = workerCount;
+    }
+
+    public Boolean getFullScan() {
+        return fullScan;
+    }
+
+    public void setFullScan(Boolean fullScan) {
+        this.fullScan = fullScan;
+    }
+
+    public Long getWatchDelay() {
+        return watchDelay;
+    }
+
+    public void setWatchDelay(Long watchDelay) {
+        this.watchDelay = watchDelay;
+    }
+
+    public Integer getCheckWorkers() {
+        return checkWorkers;
+    }
+
+    public void setCheckWorkers(Integer checkWorkers) {
+        this.checkWorkers = checkWorkers;
+    }
+
+    public Boolean getUniqueFilePath() {
+        return uniqueFilePath;
+    }
+
+    public void setUniqueFilePath(Boolean uniqueFilePath) {
+        this.uniqueFilePath = uniqueFilePath;
+    }
+
+    public Integer getMoveWorkers() {
+        return moveWorkers;
+    }
+
+    public void setMoveWorkers(Integer moveWorkers) {
+        this.moveWorkers = moveWorkers;
+    }
+
+    public String getMoveJournal() {
+        return moveJournal;
+    }
+
+    public void setMoveJournal(String moveJournal) {
+        this.moveJournal = moveJournal;
+    }
+
+    public Boolean getFullCleanup() {
+        return fullCleanup;
+    }
+
+    public void setFullCleanup(Boolean fullCleanup) {
+        this.fullCleanup = fullCleanup;
+    }
+
+    public String getMetricsFile() {
+        return metricsFile;
+    }
+
+    public void setMetricsFile(String metricsFile) {
+        this.metricsFile = metricsFile;
+    }
+
+    public Boolean getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(Boolean fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
+    public Long getRetryDelay() {
+        return retryDelay;
+    }
+
+    public void setRetryDelay(Long retryDelay) {
+        this.retryDelay = retryDelay;
+    }
 }
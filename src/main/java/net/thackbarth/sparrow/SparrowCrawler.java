@@ -17,16 +17,29 @@
 package net.thackbarth.sparrow;
 
 import net.thackbarth.sparrow.dto.MusicTrack;
-import org.hibernate.Criteria;
+import net.thackbarth.sparrow.metrics.SparrowMetrics;
+import net.thackbarth.sparrow.reader.AudioFingerprint;
+import net.thackbarth.sparrow.reader.TrackReaders;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.SharedSessionContract;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This class crawls through the file system and reads the containing files.
@@ -38,9 +51,21 @@ public class SparrowCrawler {
 
     private static Logger progress = LoggerFactory.getLogger("progress");
 
-    private int fileCount = 0;
+    /* the tracks of a deleted file or directory */
+    private static final String REMOVED_TRACKS = " from MusicTrack t where t.filePath = :path"
+            + " or substring(t.filePath, 1, :length) = :prefix";
 
-    private int moveCount = 0;
+    private final AtomicInteger fileCount = new AtomicInteger();
+
+    private final AtomicInteger moveCount = new AtomicInteger();
+
+    private final AtomicInteger unsupportedCount = new AtomicInteger();
+
+    /* the saved tracks since the last flush and if they are inserted, used by one thread at a time */
+    private final Map<MusicTrack, Boolean> unflushedTracks = new IdentityHashMap<MusicTrack, Boolean>();
+
+    /* the fingerprints of the stored tracks, loaded by the last full crawl */
+    private volatile FingerprintIndex fingerprints = new FingerprintIndex(0);
 
     @Autowired
     private SessionFactory sessionFactory;
@@ -54,110 +79,692 @@ public class SparrowCrawler {
     @Autowired
     private DirectoryCleaner cleaner;
 
+    @Autowired
+    private DatabaseCleaner databaseCleaner;
+
     @Autowired
     private SparrowConfiguration configuration;
 
+    @Autowired
+    private SparrowMetrics metrics;
+
+    @Autowired
+    private AudioFingerprint fingerprint;
+
+    @Autowired
+    private TargetPathRegistry targets;
+
+    @Autowired
+    private TrackReaders readers;
+
+    @Autowired
+    private Quarantine quarantine;
+
     /**
      * This method start the crawling by reading the config and call a recursive method.
      */
     public void startCrawling() {
+        metrics.startRun();
+        Session session = sessionFactory.openSession();
+        if (crawl(session)) {
+            moveFiles(session, null);
+        }
+        session.close();
+        metrics.finishRun();
+    }
+
+    /**
+     * This method crawls the data folder like startCrawling, but writes the pending
+     * moves to a plan file instead of moving the files.
+     *
+     * @param planFile the plan to write
+     */
+    public void writePlan(Path planFile) {
+        metrics.startRun();
+        Session session = sessionFactory.openSession();
+        if (crawl(session)) {
+            mover.writePlan(session, planFile);
+        }
+        session.close();
+        metrics.finishRun();
+    }
+
+    /**
+     * This method moves the files of a plan without crawling the data folder.
+     *
+     * @param planFile the plan to apply
+     */
+    public void applyPlan(Path planFile) {
+        logger.info("Apply plan: " + planFile);
+        metrics.startRun();
+        Session session = sessionFactory.openSession();
+        moveFiles(session, planFile);
+        session.close();
+        metrics.finishRun();
+    }
+
+    /**
+     * This method releases all files of the quarantine and reads them again.
+     */
+    public void retryQuarantine() {
+        databaseCleaner.prepareFilePathIndex();
+        List<Path> paths = new ArrayList<Path>();
+        for (String filePath : quarantine.release()) {
+            paths.add(Paths.get(configuration.getDataFolder() + filePath).toAbsolutePath());
+        }
+        processFiles(paths);
+    }
+
+    /**
+     * This method crawls the data folder and stores the tracks.
+     *
+     * @return false if the data folder does not exist
+     */
+    private boolean crawl(Session session) {
         logger.info("Start Crawling!");
         logger.info("Folder   : " + configuration.getDataFolder());
         logger.info("Scanlimit: " + configuration.getScanLimit());
+        logger.info("Workers  : " + configuration.getWorkerCount());
+        logger.info("Full scan: " + configuration.getFullScan());
+        databaseCleaner.prepareFilePathIndex();
+        fileCount.set(0);
+        moveCount.set(0);
+        unsupportedCount.set(0);
 
-        Session session = sessionFactory.openSession();
-
-        File folder = new File(configuration.getDataFolder());
-        if (folder.exists()) {
+        boolean result = false;
+        Path folder = Paths.get(configuration.getDataFolder()).toAbsolutePath();
+        if (Files.isDirectory(folder)) {
+            long start = System.nanoTime();
+            TrackIndex index = loadTrackIndex();
+            progress.info("Known tracks: " + index.size());
+            quarantine.load();
+            DirectoryCheckpoints checkpoints = new DirectoryCheckpoints();
+            checkpoints.load(session);
             // Start crawling
-            File[] files = folder.listFiles();
-            crawling(session, files, folder);
+            if (configuration.getWorkerCount() > 1) {
+                crawlingParallel(session, folder, index, checkpoints);
+            } else {
+                crawling(session, null, folder, index, checkpoints);
+                flush(session);
+            }
+            resolveTargets(session);
             logger.info("Files analyzed: " + fileCount);
-            mover.moveFiles(session);
-            cleaner.deleteEmptyDirs();
+            logger.info("Files not supported: " + unsupportedCount);
+            quarantine.store(session);
+            if (moveCount.get() < configuration.getScanLimit()) {
+                checkpoints.save(session, configuration.getBatchSize());
+            } else {
+                logger.info("Scan limit reached, the directory checkpoints are not stored");
+            }
+            metrics.phaseFinished(SparrowMetrics.Phase.CRAWL, System.nanoTime() - start);
+            result = true;
         } else {
-            logger.error("Folder '" + folder.getAbsolutePath() + "' does not exists!");
+            logger.error("Folder '" + folder + "' does not exists!");
         }
+        return result;
+    }
+
+    /**
+     * This method reads only the given files and directories and moves the tracks
+     * afterwards. Tracks of files that do not exist anymore are removed. Renamed
+     * files are found by the fingerprints of the last full crawl.
+     *
+     * @param paths the changed files and directories
+     */
+    public void processFiles(Collection<Path> paths) {
+        fileCount.set(0);
+        moveCount.set(0);
+        unsupportedCount.set(0);
+        metrics.startRun();
+        long start = System.nanoTime();
+
+        Path folder = Paths.get(configuration.getDataFolder()).toAbsolutePath();
+        final Map<Path, BasicFileAttributes> files = new LinkedHashMap<Path, BasicFileAttributes>();
+        List<Path> deletedPaths = new LinkedList<Path>();
+        for (Path path : paths) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                if (attributes.isDirectory()) {
+                    Files.walkFileTree(path, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                            new SimpleFileVisitor<Path>() {
+                                @Override
+                                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                                    files.put(file, attrs);
+                                    return FileVisitResult.CONTINUE;
+                                }
+                            });
+                } else {
+                    files.put(path, attributes);
+                }
+            } catch (NoSuchFileException e) {
+                deletedPaths.add(path);
+            } catch (IOException e) {
+                logger.error("Could not read " + path, e);
+            }
+        }
+
+        if (!targets.isLoaded()) {
+            loadTargets();
+        }
+        if (!quarantine.isLoaded()) {
+            quarantine.load();
+        }
+        Session session = sessionFactory.openSession();
+        CrawlingVisitor visitor = new CrawlingVisitor(session, null, folder,
+                loadTrackIndex(session, folder, files.keySet()), new DirectoryCheckpoints());
+        for (Path path : deletedPaths) {
+            removeTracks(session, visitor.relativePath(path));
+        }
+        for (Map.Entry<Path, BasicFileAttributes> entry : files.entrySet()) {
+            visitor.visitFile(entry.getKey(), entry.getValue());
+        }
+        flush(session);
+        resolveTargets(session);
+        logger.info("Files analyzed: " + fileCount);
+        logger.info("Files not supported: " + unsupportedCount);
+        quarantine.store(session);
+        metrics.phaseFinished(SparrowMetrics.Phase.CRAWL, System.nanoTime() - start);
+        moveFiles(session, null);
         session.close();
+        metrics.finishRun();
     }
 
-    private void crawling(Session session, File[] files, File rootFolder) {
-        for (File file : files) {
-            if (logger.isDebugEnabled()) {
-                logger.debug("Reading Content from: " + file.getAbsolutePath());
+    /**
+     * This method moves the files of the changed tracks or of a plan and deletes the
+     * directories that became empty.
+     *
+     * @param planFile the plan to apply or null to move all pending tracks
+     */
+    private void moveFiles(Session session, Path planFile) {
+        long start = System.nanoTime();
+        Set<Path> sourceDirectories = (planFile == null)
+                ? mover.moveFiles(session) : mover.applyPlan(session, planFile);
+        metrics.phaseFinished(SparrowMetrics.Phase.MOVE, System.nanoTime() - start);
+        start = System.nanoTime();
+        cleaner.deleteEmptyDirs(sourceDirectories);
+        metrics.phaseFinished(SparrowMetrics.Phase.CLEANUP, System.nanoTime() - start);
+    }
+
+    /**
+     * This method writes the saved tracks and removes them from the session. The
+     * batch is written in a transaction, so a failed batch leaves no tracks behind
+     * that would be saved twice.
+     */
+    /* package */ void flush(Session session) {
+        long start = System.nanoTime();
+        Transaction transaction = session.beginTransaction();
+        try {
+            session.flush();
+            transaction.commit();
+        } catch (ConstraintViolationException e) {
+            // a file path is already stored and unique_file_path is set
+            logger.error("Could not save the tracks, they are saved one by one: "
+                    + e.getSQLException().getMessage());
+            transaction.rollback();
+            session.clear();
+            saveSeparately(session);
+        }
+        session.clear();
+        unflushedTracks.clear();
+        metrics.sessionFlushed(System.nanoTime() - start);
+    }
+
+    /**
+     * This method saves the tracks of a failed flush one by one and skips the
+     * tracks that violate a constraint.
+     */
+    private void saveSeparately(Session session) {
+        for (Map.Entry<MusicTrack, Boolean> entry : unflushedTracks.entrySet()) {
+            MusicTrack track = entry.getKey();
+            if (entry.getValue()) {
+                // the id of the failed insert is not used
+                track.setId(null);
             }
-            if (file.isDirectory()) {
-                if (moveCount < configuration.getScanLimit()) {
-                    crawling(session, file.listFiles(), rootFolder);
-                }
-            } else {
-                processFile(session, file, rootFolder);
+            try {
+                session.saveOrUpdate(track);
+                session.flush();
+            } catch (ConstraintViolationException e) {
+                logger.error("Could not save " + track.getFilePath() + ": " + e.getSQLException().getMessage());
+            }
+            session.clear();
+        }
+    }
+
+    /**
+     * This method resolves the targets that were claimed by more than one file and
+     * updates the tracks whose target changed.
+     */
+    private void resolveTargets(Session session) {
+        for (Map.Entry<String, String> entry : targets.resolve().entrySet()) {
+            updateTarget(session, entry.getKey(), entry.getValue());
+        }
+        for (String target : targets.takeDisplacedTargets()) {
+            List filePaths = session.createQuery("select t.filePath from MusicTrack t"
+                    + " where t.targetFilePath = :target and t.filePath <> :target")
+                    .setString("target", target)
+                    .list();
+            for (Object filePath : filePaths) {
+                updateTarget(session, (String) filePath, targets.reassign(target, (String) filePath));
+            }
+        }
+    }
+
+    private void updateTarget(Session session, String filePath, String targetFilePath) {
+        session.createQuery("update MusicTrack t set t.targetFilePath = :target,"
+                + " t.filePathCorrect = :correct where t.filePath = :path")
+                .setString("target", targetFilePath)
+                .setBoolean("correct", filePath.equals(targetFilePath))
+                .setString("path", filePath)
+                .executeUpdate();
+    }
+
+    /**
+     * This method removes the tracks of a deleted file or directory and releases
+     * their targets.
+     */
+    private void removeTracks(Session session, String path) {
+        List rows = session.createQuery("select t.targetFilePath, t.filePath" + REMOVED_TRACKS)
+                .setString("path", path)
+                .setInteger("length", path.length() + 1)
+                .setString("prefix", path + "/")
+                .list();
+        for (Object row : rows) {
+            Object[] values = (Object[]) row;
+            targets.release((String) values[0], (String) values[1]);
+        }
+        int count = session.createQuery("delete" + REMOVED_TRACKS)
+                .setString("path", path)
+                .setInteger("length", path.length() + 1)
+                .setString("prefix", path + "/")
+                .executeUpdate();
+        if (count > 0) {
+            logger.info("Removed " + count + " tracks of " + path);
+        }
+    }
+
+    /**
+     * This method claims the targets of all stored tracks in the TargetPathRegistry.
+     * The registry is only loaded once, it is kept up to date by the claims of the
+     * following runs.
+     */
+    private void loadTargets() {
+        StatelessSession targetSession = sessionFactory.openStatelessSession();
+        try {
+            ScrollableResults results = targetSession
+                    .createQuery("select t.targetFilePath, t.filePath from MusicTrack t order by t.id")
+                    .setFetchSize(configuration.getBatchSize())
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            targets.clear();
+            while (results.next()) {
+                targets.register((String) results.get(0), (String) results.get(1));
+            }
+            results.close();
+            targets.setLoaded();
+        } finally {
+            targetSession.close();
+        }
+    }
+
+    /**
+     * This method loads the stored tracks of the given files into an index.
+     */
+    private TrackIndex loadTrackIndex(Session session, Path rootFolder, Collection<Path> paths) {
+        TrackIndex index = new TrackIndex(paths.size());
+        List<String> filePaths = new ArrayList<String>();
+        for (Path path : paths) {
+            filePaths.add(path.toString().substring(rootFolder.toString().length())
+                    .replace(File.separatorChar, '/'));
+        }
+        int batchSize = configuration.getBatchSize();
+        for (int start = 0; start < filePaths.size(); start += batchSize) {
+            int end = Math.min(start + batchSize, filePaths.size());
+            List rows = session.createQuery("select t.filePath, t.modificationDate, t.id"
+                    + " from MusicTrack t where t.filePath in (:paths)")
+                    .setParameterList("paths", filePaths.subList(start, end))
+                    .list();
+            for (Object row : rows) {
+                Object[] values = (Object[]) row;
+                index.put((String) values[0], (Long) values[1], (Long) values[2]);
             }
         }
+        return index;
     }
 
-    private void processFile(Session session, File file, File rootFolder) {
-        String filename = file.getName().toLowerCase();
-        if (filename.endsWith(".mp3")) {
-            if (moveCount < configuration.getScanLimit()) {
-                // read
-                if (logger.isDebugEnabled()) {
-                    logger.debug("Reading file: " + filename);
+    /**
+     * This method streams the file path, the modification date and the id of all
+     * stored tracks into an index. The targets of the tracks are claimed in the
+     * TargetPathRegistry and their fingerprints are put into the FingerprintIndex.
+     */
+    private TrackIndex loadTrackIndex() {
+        StatelessSession indexSession = sessionFactory.openStatelessSession();
+        try {
+            Number count = (Number) indexSession.createQuery("select count(*) from MusicTrack").uniqueResult();
+            TrackIndex index = new TrackIndex(count.intValue());
+            ScrollableResults results = indexSession
+                    .createQuery("select t.filePath, t.modificationDate, t.id, t.targetFilePath, t.fingerprint"
+                            + " from MusicTrack t order by t.id")
+                    .setFetchSize(configuration.getBatchSize())
+                    .scroll(ScrollMode.FORWARD_ONLY);
+            FingerprintIndex fingerprintIndex = new FingerprintIndex(
+                    configuration.getFingerprint() ? count.intValue() : 0);
+            targets.clear();
+            while (results.next()) {
+                String filePath = (String) results.get(0);
+                if (filePath != null) {
+                    index.put(filePath, (Long) results.get(1), (Long) results.get(2));
+                    targets.register((String) results.get(3), filePath);
+                    if (configuration.getFingerprint() && (results.get(4) != null)) {
+                        fingerprintIndex.put((Long) results.get(4), (Long) results.get(2));
+                    }
                 }
-                String filePath = file.getAbsolutePath().substring(rootFolder.getAbsolutePath().length());
-                Long modification = file.lastModified();
-
-                Criteria criteria = session.createCriteria(MusicTrack.class)
-                        .add(Restrictions.eq("filePath",
-                                filePath.replace(File.separatorChar, '/')))
-                        .setMaxResults(1);
-                MusicTrack track = (MusicTrack) criteria.uniqueResult();
-                if (track == null) {
-                    track = new MusicTrack();
+            }
+            results.close();
+            fingerprints = fingerprintIndex;
+            targets.setLoaded();
+            return index;
+        } finally {
+            indexSession.close();
+        }
+    }
+
+    private void crawlingParallel(Session session, Path rootFolder, TrackIndex index,
+                                  DirectoryCheckpoints checkpoints) {
+        // the lookups of the crawler thread use their own connection
+        StatelessSession lookupSession = sessionFactory.openStatelessSession();
+        CrawlPipeline pipeline = new CrawlPipeline(this, session,
+                configuration.getWorkerCount(), configuration.getBatchSize(), metrics);
+        try {
+            crawling(lookupSession, pipeline, rootFolder, index, checkpoints);
+        } finally {
+            pipeline.finish();
+            lookupSession.close();
+        }
+    }
+
+    private void crawling(SharedSessionContract session, CrawlPipeline pipeline, Path rootFolder,
+                          TrackIndex index, DirectoryCheckpoints checkpoints) {
+        walk(rootFolder, new CrawlingVisitor(session, pipeline, rootFolder, index, checkpoints));
+    }
+
+    private void walk(Path folder, CrawlingVisitor visitor) {
+        try {
+            Files.walkFileTree(folder, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, visitor);
+        } catch (IOException e) {
+            logger.error("Could not crawl " + folder, e);
+        }
+    }
+
+    /**
+     * This method reads the tags of the file. A new file whose audio data belongs to
+     * a stored track that was renamed outside of sparrow is not read, the stored
+     * track gets the new path. It can be called by several threads.
+     *
+     * @return the track that has to be saved or null
+     */
+    /* package */ MusicTrack readTrack(Path file, BasicFileAttributes attributes, Path rootFolder, MusicTrack track) {
+        MusicTrack result = null;
+        // the limit could be reached while the file was waiting for a worker
+        if (moveCount.get() < configuration.getScanLimit()) {
+            if (configuration.getFingerprint() && (track.getId() == null)) {
+                track.setFingerprint(fingerprint.compute(file));
+                result = findMovedTrack(file, attributes, rootFolder, track.getFingerprint());
+            }
+            if (result == null) {
+                long start = System.nanoTime();
+                boolean valid = reader.readFile(file, attributes, rootFolder, track);
+                metrics.fileParsed(System.nanoTime() - start);
+                if (valid && configuration.getFingerprint() && (track.getId() != null)) {
+                    // the audio data of a changed file may have changed too
+                    track.setFingerprint(fingerprint.compute(file));
                 }
-                if ((track.getModificationDate() == null)
-                        || (!track.getModificationDate().equals(modification))) {
-                    if ((track.getModificationDate() != null)
-                            && (!track.getModificationDate().equals(modification))) {
-                        logger.info("Modificationdate not OK! Reload file " + filename);
-                    }
-                    boolean valid = reader.readFile(file, rootFolder, track);
-                    if (valid) {
-                        // if the file was changed but the path is correct => update date
-                        if (track.isFilePathCorrect()) {
-                            track.setModificationDate(modification);
-                        }
-                        saveFile(session, track);
-                    }
+                // if the file was changed but the path is correct => update date
+                if (valid && track.isFilePathCorrect()) {
+                    track.setModificationDate(attributes.lastModifiedTime().toMillis());
                 }
-                fileCount++;
-                if ((fileCount % configuration.getBatchSize()) == 0) {
-                    progress.info("Read files: " + fileCount + " / Files to move: " + moveCount);
-                    session.flush();
+                if (valid) {
+                    result = track;
                 }
             }
-        } else {
-            if (!file.getName().startsWith(".DS")) {
-                // file must convert
-                logger.error("File must be converted: " + file.getAbsolutePath());
-            } else {
-                logger.info("Remove Mac-File: " + file.getAbsolutePath());
-                file.delete();
+        }
+        return result;
+    }
+
+    /**
+     * This method searches a stored track with the same fingerprint whose file
+     * does not exist anymore. Every track is only found once per crawl, only the
+     * candidates of the FingerprintIndex are loaded from the database.
+     */
+    private MusicTrack findMovedTrack(Path file, BasicFileAttributes attributes, Path rootFolder,
+                                      Long audioFingerprint) {
+        MusicTrack result = null;
+        FingerprintIndex index = fingerprints;
+        if (audioFingerprint != null) {
+            for (Long id : index.findIds(audioFingerprint)) {
+                MusicTrack candidate = (result == null) ? loadTrack(id) : null;
+                if ((candidate != null) && (audioFingerprint.equals(candidate.getFingerprint()))
+                        && (!new File(configuration.getDataFolder() + candidate.getFilePath()).exists())
+                        && (index.take(audioFingerprint, id))) {
+                    result = candidate;
+                }
             }
         }
+        if (result != null) {
+            // the file was renamed outside of sparrow, the tags are known
+            String filePath = file.toString().substring(rootFolder.toString().length())
+                    .replace(File.separatorChar, '/');
+            logger.info("File was moved from " + result.getFilePath() + " to " + filePath);
+            result.setFilePath(filePath);
+            result.setModificationDate(attributes.lastModifiedTime().toMillis());
+            result.setFilePathCorrect(filePath.equals(result.getTargetFilePath()));
+        }
+        return result;
+    }
+
+    private MusicTrack loadTrack(Long id) {
+        StatelessSession lookupSession = sessionFactory.openStatelessSession();
+        try {
+            return (MusicTrack) lookupSession.get(MusicTrack.class, id);
+        } finally {
+            lookupSession.close();
+        }
     }
 
-    private void saveFile(Session session, MusicTrack track) {
-        if ((track != null) && (track.getArtist() != null)) {
+    /* package */ void saveFile(Session session, MusicTrack track) {
+        // the limit could be reached by tracks of other workers
+        boolean limitReached = (track != null) && (!track.isFilePathCorrect())
+                && (moveCount.get() >= configuration.getScanLimit());
+        if ((track != null) && (track.getArtist() != null) && (!limitReached)) {
             // saving
             if (logger.isDebugEnabled()) {
                 logger.debug("Saving: " + track);
             }
+            unflushedTracks.put(track, track.getId() == null);
             session.saveOrUpdate(track);
+            metrics.trackSaved();
             if (!track.isFilePathCorrect()) {
-                moveCount++;
+                moveCount.incrementAndGet();
             }
         }
     }
 
+    /**
+     * This visitor reads the attributes of every entry only once and passes them
+     * to the processing of the files. Directories that did not change since the
+     * last run are not crawled, only their known sub directories are visited.
+     */
+    private class CrawlingVisitor extends SimpleFileVisitor<Path> {
+
+        private final SharedSessionContract session;
+
+        private final CrawlPipeline pipeline;
+
+        private final Path rootFolder;
+
+        private final TrackIndex index;
+
+        private final DirectoryCheckpoints checkpoints;
+
+        /* the state of the directories on the current path */
+        private final Deque<DirectoryState> directories = new ArrayDeque<DirectoryState>();
+
+        CrawlingVisitor(SharedSessionContract session, CrawlPipeline pipeline, Path rootFolder,
+                        TrackIndex index, DirectoryCheckpoints checkpoints) {
+            this.session = session;
+            this.pipeline = pipeline;
+            this.rootFolder = rootFolder;
+            this.index = index;
+            this.checkpoints = checkpoints;
+        }
+
+        @Override
+        public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("Reading Content from: " + dir);
+            }
+            countEntry();
+            FileVisitResult result = FileVisitResult.CONTINUE;
+            if ((pipeline != null) && (pipeline.isFailed())) {
+                // the tracks would not be stored anymore
+                result = FileVisitResult.TERMINATE;
+            } else if ((!dir.equals(rootFolder)) && (moveCount.get() >= configuration.getScanLimit())) {
+                result = FileVisitResult.SKIP_SUBTREE;
+            } else {
+                String path = relativePath(dir);
+                long modification = attrs.lastModifiedTime().toMillis();
+                checkpoints.visit(path);
+                if ((!configuration.getFullScan()) && (checkpoints.isUnchanged(path, dir, modification))) {
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Unchanged directory: " + dir);
+                    }
+                    directories.push(new DirectoryState(path, modification, false));
+                    for (String subDirectory : checkpoints.getSubDirectories(path)) {
+                        walk(Paths.get(rootFolder.toString() + subDirectory.replace('/', File.separatorChar)),
+                                this);
+                    }
+                    directories.pop();
+                    result = FileVisitResult.SKIP_SUBTREE;
+                } else {
+                    directories.push(new DirectoryState(path, modification, true));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            countEntry();
+            FileVisitResult result = FileVisitResult.CONTINUE;
+            if ((pipeline != null) && (pipeline.isFailed())) {
+                result = FileVisitResult.TERMINATE;
+            } else if (attrs.isRegularFile()) {
+                metrics.fileWalked();
+                processFile(file, attrs);
+            }
+            return result;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException exc) {
+            logger.error("Could not read " + file, exc);
+            countEntry();
+            return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult postVisitDirectory(Path dir, IOException exc) {
+            DirectoryState state = directories.pop();
+            if ((exc == null) && (state.crawled)) {
+                checkpoints.update(state.path, state.modificationDate, state.entryCount);
+            }
+            return FileVisitResult.CONTINUE;
+        }
+
+        private void countEntry() {
+            if (!directories.isEmpty()) {
+                directories.peek().entryCount++;
+            }
+        }
+
+        private String relativePath(Path path) {
+            return path.toString().substring(rootFolder.toString().length()).replace(File.separatorChar, '/');
+        }
+
+        /**
+         * This method checks if the file has to be read. The file is read directly if no
+         * pipeline is given, otherwise it is handed over to the workers of the pipeline.
+         */
+        private void processFile(Path file, BasicFileAttributes attributes) {
+            String filename = file.getFileName().toString().toLowerCase();
+            if (readers.forFile(file) != null) {
+                if (moveCount.get() < configuration.getScanLimit()) {
+                    // read
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Reading file: " + filename);
+                    }
+                    String filePath = relativePath(file);
+                    long modification = attributes.lastModifiedTime().toMillis();
+
+                    // unchanged files are skipped without a query
+                    if (quarantine.contains(filePath, modification)) {
+                        logger.debug("File is in the quarantine: " + filePath);
+                    } else if (!index.isUnchanged(filePath, modification)) {
+                        MusicTrack track = null;
+                        Long id = index.findId(filePath);
+                        if (id != null) {
+                            logger.info("Modificationdate not OK! Reload file " + filename);
+                            track = (MusicTrack) session.createCriteria(MusicTrack.class)
+                                    .add(Restrictions.idEq(id))
+                                    .uniqueResult();
+                        }
+                        if (track == null) {
+                            track = new MusicTrack();
+                        }
+                        if (pipeline != null) {
+                            pipeline.submit(file, attributes, rootFolder, track);
+                        } else {
+                            saveFile((Session) session, readTrack(file, attributes, rootFolder, track));
+                        }
+                    }
+                    int count = fileCount.incrementAndGet();
+                    if ((count % configuration.getBatchSize()) == 0) {
+                        progress.info("Read files: " + count + " / Files to move: " + moveCount);
+                        if (pipeline == null) {
+                            // the saved tracks are not needed anymore
+                            flush((Session) session);
+                        }
+                    }
+                }
+            } else {
+                if (!file.getFileName().toString().startsWith(".DS")) {
+                    // there is no reader for the format
+                    logger.debug("File is not supported: " + file);
+                    unsupportedCount.incrementAndGet();
+                } else {
+                    logger.info("Remove Mac-File: " + file);
+                    file.toFile().delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a directory during the crawl.
+     */
+    private static class DirectoryState {
+
+        final String path;
+
+        final long modificationDate;
+
+        final boolean crawled;
+
+        int entryCount = 0;
+
+        DirectoryState(String path, long modificationDate, boolean crawled) {
+            this.path = path;
+            this.modificationDate = modificationDate;
+            this.crawled = crawled;
+        }
+    }
+
 }
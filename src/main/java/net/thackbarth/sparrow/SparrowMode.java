@@ -25,6 +25,16 @@ public enum SparrowMode {
     CRAWL,
     /* Clean up the database */
     CLEAN,
+    /* Crawl the data folder and write the pending moves to a plan file */
+    PLAN,
+    /* Move the files of a plan file without crawling */
+    APPLY,
+    /* List the files in the quarantine */
+    QUARANTINE,
+    /* Read the files in the quarantine again */
+    RETRY,
+    /* Crawl the data folder and sort every changed file until the tool is stopped */
+    WATCH,
     /* Do nothing. Will be used if the Help is shown. */
     NOTHING
 
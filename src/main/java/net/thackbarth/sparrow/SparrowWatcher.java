@@ -0,0 +1,191 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class watches the data folder and sorts the changed files. A file is
+ * processed after no event was received for it during the configured delay, so
+ * files that are still copied are not read too early.
+ */
+@Component("watcher")
+public class SparrowWatcher implements DisposableBean {
+
+    private static Logger logger = LoggerFactory.getLogger(SparrowWatcher.class);
+
+    private static Logger progress = LoggerFactory.getLogger("progress");
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Autowired
+    private SparrowConfiguration configuration;
+
+    private WatchService watchService;
+
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    /* the changed paths and the time of their last event */
+    private final Map<Path, Long> pendingPaths = new LinkedHashMap<Path, Long>();
+
+    private boolean overflow = false;
+
+    /**
+     * This method crawls the data folder once and watches it for changes until the
+     * application is stopped.
+     */
+    public void startWatching() {
+        Path folder = Paths.get(configuration.getDataFolder()).toAbsolutePath();
+        if (Files.isDirectory(folder)) {
+            try {
+                watchService = folder.getFileSystem().newWatchService();
+                register(folder);
+                // changes during the crawl are queued by the watch service
+                crawler.startCrawling();
+                progress.info("Watching " + folder);
+                watch();
+            } catch (IOException e) {
+                logger.error("Could not watch " + folder, e);
+            } catch (ClosedWatchServiceException e) {
+                progress.info("Stopped watching " + folder);
+            }
+        } else {
+            logger.error("Folder '" + folder + "' does not exists!");
+        }
+    }
+
+    /**
+     * This method stops the watching if the application context is closed.
+     */
+    @Override
+    public void destroy() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                logger.error("Could not stop watching", e);
+            }
+        }
+    }
+
+    private void watch() {
+        long delay = configuration.getWatchDelay();
+        boolean interrupted = false;
+        while (!interrupted) {
+            try {
+                WatchKey key = watchService.poll(delay, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    handleEvents(key);
+                }
+                processSettledPaths(System.currentTimeMillis() - delay);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = directories.get(key);
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (StandardWatchEventKinds.OVERFLOW.equals(event.kind())) {
+                logger.info("Too many changes, the data folder will be crawled");
+                overflow = true;
+            } else if (directory != null) {
+                Path path = directory.resolve((Path) event.context());
+                if ((StandardWatchEventKinds.ENTRY_CREATE.equals(event.kind())) && (Files.isDirectory(path))) {
+                    try {
+                        register(path);
+                    } catch (IOException e) {
+                        logger.error("Could not watch " + path, e);
+                    }
+                }
+                pathChanged(path, now);
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+
+    private void processSettledPaths(long settledTime) {
+        List<Path> settledPaths = takeSettledPaths(settledTime);
+        if (overflow) {
+            overflow = false;
+            pendingPaths.clear();
+            crawler.startCrawling();
+        } else if (!settledPaths.isEmpty()) {
+            progress.info("Changed files: " + settledPaths.size());
+            crawler.processFiles(settledPaths);
+        }
+    }
+
+    /**
+     * This method notes the time of the last event of a path.
+     *
+     * @param path the changed path
+     * @param time the time of the event
+     */
+    /* package */ void pathChanged(Path path, long time) {
+        // keep the order of the last events
+        pendingPaths.remove(path);
+        pendingPaths.put(path, time);
+    }
+
+    /**
+     * This method removes the paths without an event since the given time.
+     *
+     * @param settledTime the time of the last event of a settled path
+     * @return the settled paths in the order of their last events
+     */
+    /* package */ List<Path> takeSettledPaths(long settledTime) {
+        List<Path> settledPaths = new LinkedList<Path>();
+        Iterator<Map.Entry<Path, Long>> iterator = pendingPaths.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, Long> entry = iterator.next();
+            if (entry.getValue() <= settledTime) {
+                settledPaths.add(entry.getKey());
+                iterator.remove();
+            }
+        }
+        return settledPaths;
+    }
+
+    private void register(Path folder) throws IOException {
+        Files.walkFileTree(folder, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                directories.put(key, dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
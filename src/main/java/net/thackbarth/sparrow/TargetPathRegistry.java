@@ -0,0 +1,272 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class holds the target paths that are claimed by the tracks of a crawl, so
+ * two tracks never get the same target. A track whose target is claimed by another
+ * track gets the first free target with a numeric suffix, e.g. "001.Title (2).mp3".
+ * <p/>
+ * The registry is filled with the targets of the stored tracks at the start of a
+ * crawl, so a track keeps its target in the next runs. Like the TrackIndex it only
+ * stores the 64 bit hashes of the stored paths. The targets claimed during a crawl
+ * depend on the order in which the workers read the files, so they are resolved
+ * again at the end of the crawl: a file that is already at the target wins, then
+ * the stored owner of the target, then the file with the smallest path.
+ */
+@Component
+public class TargetPathRegistry {
+
+    private static Logger logger = LoggerFactory.getLogger(TargetPathRegistry.class);
+
+    /* the hash of a stored target mapped to the hash of the file that holds it */
+    private final ConcurrentMap<Long, Long> owners = new ConcurrentHashMap<Long, Long>();
+
+    /* the hash of a target claimed in the running crawl mapped to the hash of the file */
+    private final ConcurrentMap<Long, Long> claimed = new ConcurrentHashMap<Long, Long>();
+
+    /* the generated targets of the running crawl mapped to the files and their targets */
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> claims =
+            new ConcurrentSkipListMap<String, ConcurrentMap<String, String>>();
+
+    /* the stored targets that were taken over by a file that is already at the target */
+    private final List<String> displacedTargets = new ArrayList<String>();
+
+    private volatile boolean loaded = false;
+
+    /**
+     * This method removes all claims before a new crawl.
+     */
+    public synchronized void clear() {
+        owners.clear();
+        claimed.clear();
+        claims.clear();
+        displacedTargets.clear();
+        loaded = false;
+    }
+
+    /**
+     * This method marks the registry as filled with the targets of all stored tracks.
+     * The registry is kept up to date by the claims afterwards.
+     */
+    public void setLoaded() {
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * This method adds the target of a stored track. The first track of a target wins.
+     *
+     * @param targetFilePath the target of the track
+     * @param filePath       the current path of the track
+     */
+    public void register(String targetFilePath, String filePath) {
+        if ((targetFilePath != null) && (filePath != null)) {
+            owners.putIfAbsent(TrackIndex.hash(targetFilePath), TrackIndex.hash(filePath));
+        }
+    }
+
+    /**
+     * This method removes the target of a stored track that was deleted or got
+     * another target.
+     *
+     * @param targetFilePath the target of the track
+     * @param filePath       the current path of the track
+     */
+    public void release(String targetFilePath, String filePath) {
+        if ((targetFilePath != null) && (filePath != null)) {
+            owners.remove(TrackIndex.hash(targetFilePath), TrackIndex.hash(filePath));
+        }
+    }
+
+    /**
+     * This method claims the target for the file. If the target is claimed by another
+     * file, the first free target with a numeric suffix is claimed instead. A file
+     * that is already at the target always gets it. The result is only preliminary
+     * until the claims are resolved.
+     *
+     * @param targetFilePath the generated target
+     * @param filePath       the current path of the file
+     * @return the target of the file
+     */
+    public String claim(String targetFilePath, String filePath) {
+        String result = claimFirstFree(targetFilePath, filePath);
+        ConcurrentMap<String, String> files = claims.get(targetFilePath);
+        if (files == null) {
+            ConcurrentMap<String, String> newFiles = new ConcurrentSkipListMap<String, String>();
+            files = claims.putIfAbsent(targetFilePath, newFiles);
+            if (files == null) {
+                files = newFiles;
+            }
+        }
+        files.put(filePath, result);
+        return result;
+    }
+
+    /**
+     * This method resolves the targets that were claimed by more than one file of
+     * the crawl in a stable order and stores the claims of the crawl. The tracks of
+     * the stored targets that were displaced are returned by getDisplacedTargets.
+     *
+     * @return the files whose target changed mapped to their new target
+     */
+    public synchronized Map<String, String> resolve() {
+        Map<String, String> result = new TreeMap<String, String>();
+        for (Map.Entry<String, ConcurrentMap<String, String>> entry : claims.entrySet()) {
+            String target = entry.getKey();
+            Map<String, String> files = entry.getValue();
+            Long stored = owners.get(TrackIndex.hash(target));
+            String first = null;
+            if (files.containsKey(target)) {
+                first = target;
+            } else if (stored != null) {
+                for (String filePath : files.keySet()) {
+                    if (stored.longValue() == TrackIndex.hash(filePath)) {
+                        first = filePath;
+                    }
+                }
+            }
+            if ((stored != null) && (target.equals(first)) && (!isMember(files, stored))) {
+                // a stored track that is not at the target has to move aside
+                displacedTargets.add(target);
+            }
+            if (files.size() > 1) {
+                List<String> order = new ArrayList<String>(files.keySet());
+                if (first != null) {
+                    order.remove(first);
+                    order.add(0, first);
+                }
+                for (Map.Entry<String, String> file : files.entrySet()) {
+                    claimed.remove(TrackIndex.hash(file.getValue()), TrackIndex.hash(file.getKey()));
+                }
+                for (String filePath : order) {
+                    String resolved = claimFirstFree(target, filePath);
+                    if (!resolved.equals(files.get(filePath))) {
+                        logger.info("The target of " + filePath + " is resolved to " + resolved);
+                        result.put(filePath, resolved);
+                    }
+                }
+            }
+        }
+        owners.putAll(claimed);
+        claimed.clear();
+        claims.clear();
+        return result;
+    }
+
+    /**
+     * This method returns the stored targets that were taken over by another file
+     * in the last resolve and forgets them.
+     */
+    public synchronized List<String> takeDisplacedTargets() {
+        List<String> result = new ArrayList<String>(displacedTargets);
+        displacedTargets.clear();
+        return result;
+    }
+
+    /**
+     * This method gives a stored track whose target was taken over the first free
+     * target with a numeric suffix.
+     *
+     * @param targetFilePath the target that was taken over
+     * @param filePath       the current path of the track
+     * @return the new target of the track
+     */
+    public synchronized String reassign(String targetFilePath, String filePath) {
+        String result = claimFirstFree(targetFilePath, filePath);
+        owners.putAll(claimed);
+        claimed.clear();
+        return result;
+    }
+
+    public int size() {
+        int result = owners.size();
+        for (Long target : claimed.keySet()) {
+            if (!owners.containsKey(target)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private String claimFirstFree(String targetFilePath, String filePath) {
+        Long owner = TrackIndex.hash(filePath);
+        String result = targetFilePath;
+        if (targetFilePath.equals(filePath)) {
+            // the file is already at its target
+            claimed.put(owner, owner);
+        } else {
+            int number = 1;
+            while (!claim(result, owner)) {
+                number++;
+                result = withSuffix(targetFilePath, number);
+            }
+            if (number > 1) {
+                logger.info("The target " + targetFilePath + " is already claimed, " + filePath
+                        + " is moved to " + result);
+            }
+        }
+        return result;
+    }
+
+    private boolean claim(String targetFilePath, Long owner) {
+        Long target = TrackIndex.hash(targetFilePath);
+        Long current = claimed.get(target);
+        if (current == null) {
+            Long stored = owners.get(target);
+            if ((stored == null) || (stored.equals(owner))) {
+                current = claimed.putIfAbsent(target, owner);
+                if (current == null) {
+                    current = owner;
+                }
+            }
+        }
+        return owner.equals(current);
+    }
+
+    private static boolean isMember(Map<String, String> files, Long owner) {
+        boolean result = false;
+        for (String filePath : files.keySet()) {
+            result |= (owner.longValue() == TrackIndex.hash(filePath));
+        }
+        return result;
+    }
+    /**
+     * This method adds the number in front of the extension of the file name.
+     */
+    /* package */ static String withSuffix(String path, int number) {
+        int extension = path.lastIndexOf('.');
+        if (extension <= path.lastIndexOf('/')) {
+            extension = path.length();
+        }
+        return path.substring(0, extension) + " (" + number + ")" + path.substring(extension);
+    }
+}
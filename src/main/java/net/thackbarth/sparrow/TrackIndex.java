@@ -0,0 +1,156 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+/**
+ * This class holds the id and the modification date of all stored tracks, so the
+ * crawler can skip unchanged files without asking the database.
+ * <p/>
+ * The index is an open addressing hash table over three parallel arrays. A file
+ * path is only stored as its 64 bit hash, so one slot needs 24 bytes. With the
+ * maximum load of 75% one million tracks fit into 2^21 slots, which is a budget
+ * of 48 MiB per million tracks.
+ */
+public final class TrackIndex {
+
+    private static final long EMPTY = 0L;
+
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] hashes;
+
+    private long[] ids;
+
+    private long[] modificationDates;
+
+    private int size = 0;
+
+    /**
+     * This constructor creates an index for the expected number of tracks.
+     *
+     * @param expectedSize the expected number of tracks
+     */
+    public TrackIndex(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * This method adds a track to the index. The first track of a file path wins.
+     *
+     * @param filePath         the file path of the track
+     * @param modificationDate the stored modification date or null
+     * @param id               the id of the track
+     */
+    public void put(String filePath, Long modificationDate, long id) {
+        if ((size + 1) * 4L > hashes.length * 3L) {
+            resize();
+        }
+        insert(hash(filePath), id, (modificationDate == null) ? NO_DATE : modificationDate);
+    }
+
+    /**
+     * This method returns the id of the track with the given file path.
+     *
+     * @param filePath the file path of the track
+     * @return the id or null if the file is not stored
+     */
+    public Long findId(String filePath) {
+        int slot = find(hash(filePath));
+        return (slot < 0) ? null : ids[slot];
+    }
+
+    /**
+     * This method checks if the file is stored with the given modification date.
+     *
+     * @param filePath         the file path of the track
+     * @param modificationDate the current modification date of the file
+     * @return true if the file has not changed since it was stored
+     */
+    public boolean isUnchanged(String filePath, long modificationDate) {
+        int slot = find(hash(filePath));
+        return (slot >= 0) && (modificationDates[slot] == modificationDate);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int find(long hash) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while ((hashes[slot] != EMPTY) && (hashes[slot] != hash)) {
+            slot = (slot + 1) & mask;
+        }
+        return (hashes[slot] == EMPTY) ? -1 : slot;
+    }
+
+    private void insert(long hash, long id, long modificationDate) {
+        int mask = hashes.length - 1;
+        int slot = (int) hash & mask;
+        while ((hashes[slot] != EMPTY) && (hashes[slot] != hash)) {
+            slot = (slot + 1) & mask;
+        }
+        if (hashes[slot] == EMPTY) {
+            hashes[slot] = hash;
+            ids[slot] = id;
+            modificationDates[slot] = modificationDate;
+            size++;
+        }
+    }
+
+    private void resize() {
+        long[] oldHashes = hashes;
+        long[] oldIds = ids;
+        long[] oldDates = modificationDates;
+        allocate(oldHashes.length << 1);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != EMPTY) {
+                insert(oldHashes[i], oldIds[i], oldDates[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        hashes = new long[capacity];
+        ids = new long[capacity];
+        modificationDates = new long[capacity];
+        size = 0;
+    }
+
+    /**
+     * This method calculates the FNV-1a hash of the path and mixes the bits, so the
+     * lower bits can be used as slot. The value 0 marks an empty slot and is never
+     * returned.
+     */
+    /* package */ static long hash(String filePath) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < filePath.length(); i++) {
+            hash ^= filePath.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (hash == EMPTY) ? 1L : hash;
+    }
+}
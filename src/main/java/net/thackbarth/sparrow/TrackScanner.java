@@ -0,0 +1,79 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.hibernate.StatelessSession;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class reads properties of all tracks in batches ordered by the id. Every
+ * batch starts after the last id of the previous batch, so the time per batch
+ * does not grow with the position in the table like an offset would, and rows
+ * of the read batches can be deleted during the scan.
+ */
+class TrackScanner {
+
+    private final StatelessSession session;
+
+    private final String query;
+
+    private final int batchSize;
+
+    private long lastId = Long.MIN_VALUE;
+
+    private boolean finished = false;
+
+    /**
+     * This constructor prepares the scan.
+     *
+     * @param session    the session to the database
+     * @param properties the properties to read, e.g. "t.filePath". The id is always the first column.
+     * @param batchSize  the number of rows per batch
+     */
+    TrackScanner(StatelessSession session, String properties, int batchSize) {
+        this.session = session;
+        this.query = "select t.id, " + properties + " from MusicTrack t where t.id > :lastId order by t.id";
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * This method reads the next batch.
+     *
+     * @return the rows with the id in the first column or an empty list at the end
+     */
+    @SuppressWarnings("unchecked")
+    List<Object[]> nextBatch() {
+        List<Object[]> rows;
+        if (finished) {
+            rows = Collections.emptyList();
+        } else {
+            rows = session.createQuery(query)
+                    .setLong("lastId", lastId)
+                    .setMaxResults(batchSize)
+                    .list();
+            if (rows.size() < batchSize) {
+                finished = true;
+            }
+            if (!rows.isEmpty()) {
+                lastId = (Long) rows.get(rows.size() - 1)[0];
+            }
+        }
+        return rows;
+    }
+}
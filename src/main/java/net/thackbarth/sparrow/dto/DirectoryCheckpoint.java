@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.dto;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * This class stores the state of a directory after the last successful crawl.
+ */
+@Entity
+@Table(name = "directories")
+public class DirectoryCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "directory_hilo")
+    @GenericGenerator(name = "directory_hilo", strategy = "seqhilo", parameters = {
+            @Parameter(name = "sequence", value = "hibernate_sequence"),
+            @Parameter(name = "max_lo", value = "49")})
+    private Long id;
+
+    @Index(name = "idx_directorypath")
+    private String directoryPath;
+
+    private Long modificationDate;
+
+    private Integer entryCount;
+
+    /**
+     * default constructor.
+     */
+    public DirectoryCheckpoint() {
+        // nothing here
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getDirectoryPath() {
+        return directoryPath;
+    }
+
+    public void setDirectoryPath(String directoryPath) {
+        this.directoryPath = directoryPath;
+    }
+
+    public Long getModificationDate() {
+        return modificationDate;
+    }
+
+    public void setModificationDate(Long modificationDate) {
+        this.modificationDate = modificationDate;
+    }
+
+    public Integer getEntryCount() {
+        return entryCount;
+    }
+
+    public void setEntryCount(Integer entryCount) {
+        this.entryCount = entryCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("DirectoryCheckpoint=[Id:");
+        builder.append(id);
+        builder.append(";directoryPath:'");
+        builder.append(directoryPath);
+        builder.append("';modificationDate:");
+        builder.append(modificationDate);
+        builder.append(";entryCount:");
+        builder.append(entryCount);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.dto;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * This class stores a move of a track that failed. The move is tried again in
+ * the next run, the entry is removed when the move succeeds.
+ */
+@Entity
+@Table(name = "failed_moves")
+public class FailedMove {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "failed_move_hilo")
+    @GenericGenerator(name = "failed_move_hilo", strategy = "seqhilo", parameters = {
+            @Parameter(name = "sequence", value = "hibernate_sequence"),
+            @Parameter(name = "max_lo", value = "49")})
+    private Long id;
+
+    @Index(name = "idx_failedmove_track")
+    private Long trackId;
+
+    private String filePath;
+
+    private String targetFilePath;
+
+    private String reason;
+
+    private Integer attempts;
+
+    private Long lastAttempt;
+
+    /**
+     * default constructor.
+     */
+    public FailedMove() {
+        // nothing here
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getTrackId() {
+        return trackId;
+    }
+
+    public void setTrackId(Long trackId) {
+        this.trackId = trackId;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public String getTargetFilePath() {
+        return targetFilePath;
+    }
+
+    public void setTargetFilePath(String targetFilePath) {
+        this.targetFilePath = targetFilePath;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public Long getLastAttempt() {
+        return lastAttempt;
+    }
+
+    public void setLastAttempt(Long lastAttempt) {
+        this.lastAttempt = lastAttempt;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("FailedMove=[Id:");
+        builder.append(id);
+        builder.append(";trackId:");
+        builder.append(trackId);
+        builder.append(";filePath:'");
+        builder.append(filePath);
+        builder.append("';targetFilePath:'");
+        builder.append(targetFilePath);
+        builder.append("';reason:'");
+        builder.append(reason);
+        builder.append("';attempts:");
+        builder.append(attempts);
+        builder.append(";lastAttempt:");
+        builder.append(lastAttempt);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -16,10 +16,13 @@
 
 package net.thackbarth.sparrow.dto;
 
+import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Table;
 import javax.validation.constraints.NotNull;
@@ -34,8 +37,12 @@ public class MusicTrack {
 
     public static final int MAX_LENGTH = 192;
 
+    /* the sequence is called once for 50 tracks, see IdSequence for databases with identity ids */
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "track_hilo")
+    @GenericGenerator(name = "track_hilo", strategy = "seqhilo", parameters = {
+            @Parameter(name = "sequence", value = "hibernate_sequence"),
+            @Parameter(name = "max_lo", value = "49")})
     private Long id;
 
     private String album;
@@ -64,6 +71,10 @@ public class MusicTrack {
 
     private Long modificationDate;
 
+    /* the fingerprint of the audio data, see AudioFingerprint */
+    @Index(name = "idx_fingerprint")
+    private Long fingerprint;
+
     /**
      * default constructor.
      */
@@ -159,6 +170,14 @@ public class MusicTrack {
         this.modificationDate = modificationDate;
     }
 
+    public Long getFingerprint() {
+        return fingerprint;
+    }
+
+    public void setFingerprint(Long fingerprint) {
+        this.fingerprint = fingerprint;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -187,6 +206,8 @@ public class MusicTrack {
         builder.append(filePathCorrect);
         builder.append(";modificationDate:");
         builder.append(modificationDate);
+        builder.append(";fingerprint:");
+        builder.append(fingerprint);
         builder.append("]");
         return builder.toString();
     }
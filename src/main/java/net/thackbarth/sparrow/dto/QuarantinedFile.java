@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.dto;
+
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Index;
+import org.hibernate.annotations.Parameter;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * This class stores a file that is not read by the crawler. The file is skipped
+ * until its modification date changes.
+ */
+@Entity
+@Table(name = "quarantine")
+public class QuarantinedFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quarantine_hilo")
+    @GenericGenerator(name = "quarantine_hilo", strategy = "seqhilo", parameters = {
+            @Parameter(name = "sequence", value = "hibernate_sequence"),
+            @Parameter(name = "max_lo", value = "49")})
+    private Long id;
+
+    @Index(name = "idx_quarantine_path")
+    private String filePath;
+
+    private Long modificationDate;
+
+    private String reason;
+
+    private Long since;
+
+    /**
+     * default constructor.
+     */
+    public QuarantinedFile() {
+        // nothing here
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public Long getModificationDate() {
+        return modificationDate;
+    }
+
+    public void setModificationDate(Long modificationDate) {
+        this.modificationDate = modificationDate;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Long getSince() {
+        return since;
+    }
+
+    public void setSince(Long since) {
+        this.since = since;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("QuarantinedFile=[Id:");
+        builder.append(id);
+        builder.append(";filePath:'");
+        builder.append(filePath);
+        builder.append("';modificationDate:");
+        builder.append(modificationDate);
+        builder.append(";reason:'");
+        builder.append(reason);
+        builder.append("';since:");
+        builder.append(since);
+        builder.append("]");
+        return builder.toString();
+    }
+}
@@ -23,14 +23,18 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * This class generates the filename from the track information.
+ * This class generates the filename from the track information. The configuration
+ * is compiled once into a list of segments, every segment renders one field.
  */
 public class FilenameByConfigGenerator implements FilenameGenerator {
 
-    private List<FieldInformation> informationList = new LinkedList<FieldInformation>();
+    private static final Pattern NUMBER_PATTERN = Pattern.compile("(\\d+)");
+
+    private final List<Segment> segments;
 
     public FilenameByConfigGenerator() {
         String bundleTag = "sparrow.";
+        List<Segment> segmentList = new ArrayList<Segment>();
         ResourceBundle bundle;
         try {
             bundle = ResourceBundle.getBundle("filename");
@@ -102,158 +106,71 @@ public class FilenameByConfigGenerator implements FilenameGenerator {
                 }
             }
 
-            informationList.add(info);
+            Segment segment = compile(info);
+            if (segment != null) {
+                segmentList.add(segment);
+            }
         }
+        segments = Collections.unmodifiableList(segmentList);
     }
 
     @Override
     public String generateName(MusicTrack track) {
-        Map<String, String> trackMap = convertToMap(track);
-        StringBuilder nameBuilder = new StringBuilder();
-        for (FieldInformation info : informationList) {
-            processFieldInformation(info, trackMap, nameBuilder);
+        StringBuilder nameBuilder = new StringBuilder(128);
+        for (Segment segment : segments) {
+            segment.render(track, nameBuilder);
         }
         return nameBuilder.toString();
     }
 
-    private void processFieldInformation(FieldInformation info, Map<String, String> track, StringBuilder sb) {
-        if ((track.containsKey(info.field)) || (info.defaultValue != null)) {
-            if (info.prefix != null) {
-                sb.append(info.prefix);
-            }
-            if (track.containsKey(info.field)) {
-                String value = track.get(info.field);
-                switch (info.mode) {
-                    case GROUP:
-                        boolean startsWithStopWord = false;
-                        if ((value != null) && (value.length() >= 5)) {
-                            String ff = value.substring(0, 4).toLowerCase();
-                            startsWithStopWord = (("der ".equals(ff))
-                                    || ("die ".equals(ff))
-                                    || ("das ".equals(ff))
-                                    || ("the ".equals(ff)));
-                        }
-                        String valueString = clearString(value);
-                        if (startsWithStopWord) {
-                            sb.append(valueString.substring(3, 4).toUpperCase());
-                        } else {
-                            sb.append(valueString.substring(0, 1).toUpperCase());
-                        }
-                        if (info.prefix != null) {
-                            sb.append(info.prefix);
-                        }
-                        if (valueString.length() > 0) {
-                            sb.append(valueString);
-                        } else {
-                            sb.append(info.defaultValue);
-                        }
-                        break;
-                    case NUMERIC:
-                        if ((value != null) && (value.length() > 0)) {
-                            Integer trackNumber = convertToNumeric(value);
-                            if (trackNumber != null) {
-                                if (info.numericLength == null) {
-                                    sb.append(trackNumber.toString());
-                                } else {
-                                    sb.append(String.format("%0" + info.numericLength + "d", trackNumber));
-                                }
-                            }
-                        } else {
-                            if (info.numericLength == null) {
-                                sb.append("0");
-                            } else {
-                                sb.append(String.format("%0" + info.numericLength + "d", 0));
-                            }
-                        }
-                        break;
-                    case VALUE:
-                        if (info.fixedValues.containsKey(value)) {
-                            sb.append(info.fixedValues.get(value));
-                        } else {
-                            sb.append(info.defaultValue);
-                        }
-                        break;
-                    default:
-                        if ((value != null) && (value.length() > 0) && (clearString(value) != null)) {
-                            sb.append(clearString(value));
-                        } else {
-                            sb.append(info.defaultValue);
-                        }
-                }
-            } else {
-                if (info.defaultValue != null) {
-                    sb.append(info.defaultValue);
-                }
-            }
-            if (info.suffix != null) {
-                sb.append(info.suffix);
+    private Segment compile(FieldInformation info) {
+        TrackField field = TrackField.forName(info.field);
+        Segment segment;
+        if ((field == null) && (info.defaultValue == null)) {
+            // an unknown field without default value is never rendered
+            segment = null;
+        } else {
+            switch (info.mode) {
+                case GROUP:
+                    segment = new GroupSegment(field, info);
+                    break;
+                case NUMERIC:
+                    segment = new NumericSegment(field, info);
+                    break;
+                case VALUE:
+                    segment = new ValueSegment(field, info);
+                    break;
+                default:
+                    segment = new TextSegment(field, info);
             }
         }
+        return segment;
     }
 
-    private Map<String, String> convertToMap(MusicTrack track) {
-        Map<String, String> result = new HashMap<String, String>();
-        result.put("GENRE", track.getGenreDescription());
-        result.put("ARTIST", track.getArtist());
-        result.put("ALBUM", track.getAlbum());
-        result.put("TRACK", track.getTrack());
-        result.put("TITLE", track.getTitle());
-        return result;
-    }
-
-    private Integer convertToNumeric(String value) {
-        Pattern p = Pattern.compile("(\\d+)");
-        Matcher m = p.matcher(value);
+    private static Integer convertToNumeric(String value) {
+        Matcher m = NUMBER_PATTERN.matcher(value);
         Integer number = null;
         if (m.find()) {
-            number = Integer.valueOf(m.group(1));
+            try {
+                number = Integer.valueOf(m.group(1));
+            } catch (NumberFormatException e) {
+                // the number is too large for a track
+                number = null;
+            }
         }
         return number;
     }
 
-    /**
-     * This method removes all unwanted characters from a string.
-     *
-     * @param value the string to clean
-     * @return the cleaned result
-     */
-    private String clearString(String value) {
-        if (value == null) {
-            return null;
-        }
-        String tempStr = value;
-        tempStr = tempStr.replaceAll("ä", "ae");
-        tempStr = tempStr.replaceAll("ö", "oe");
-        tempStr = tempStr.replaceAll("ü", "ue");
-        tempStr = tempStr.replaceAll("ß", "ss");
-        tempStr = tempStr.replaceAll("Ä", "Ae");
-        tempStr = tempStr.replaceAll("Ö", "Oe");
-        tempStr = tempStr.replaceAll("Ü", "Ue");
-
-        tempStr = getCamelCase(tempStr);
-
-        tempStr = tempStr.replaceAll("[^a-zA-Z0-9]", "");
-
-        return tempStr;
-    }
-
-    private String getCamelCase(String tempStr) {
-        StringBuilder builder = new StringBuilder();
-        String[] strings = tempStr.toLowerCase().split(" ");
-        for (String part : strings) {
-            // remove ( and ) for the part (Disc x)
-            part = part.replaceAll("[\\(\\)]", "");
-            if (part.length() > 0) {
-                builder.append(part.substring(0, 1).toUpperCase());
-            }
-            if (part.length() > 1) {
-                builder.append(part.substring(1).toLowerCase());
+    private static void appendNumber(int number, Integer length, StringBuilder sb) {
+        String digits = Integer.toString(number);
+        if (length != null) {
+            for (int i = digits.length(); i < length; i++) {
+                sb.append('0');
             }
         }
-        return builder.toString();
+        sb.append(digits);
     }
 
-
     private static enum FieldMode {
         DEFAULT, GROUP, NUMERIC, VALUE
     }
@@ -275,4 +192,188 @@ public class FilenameByConfigGenerator implements FilenameGenerator {
         String suffix;
 
     }
+
+    /**
+     * The fields of a track that can be used in the configuration.
+     */
+    private static enum TrackField {
+        GENRE {
+            @Override
+            String getValue(MusicTrack track) {
+                return track.getGenreDescription();
+            }
+        },
+        ARTIST {
+            @Override
+            String getValue(MusicTrack track) {
+                return track.getArtist();
+            }
+        },
+        ALBUM {
+            @Override
+            String getValue(MusicTrack track) {
+                return track.getAlbum();
+            }
+        },
+        TRACK {
+            @Override
+            String getValue(MusicTrack track) {
+                return track.getTrack();
+            }
+        },
+        TITLE {
+            @Override
+            String getValue(MusicTrack track) {
+                return track.getTitle();
+            }
+        };
+
+        abstract String getValue(MusicTrack track);
+
+        static TrackField forName(String name) {
+            TrackField result = null;
+            for (TrackField field : values()) {
+                if (field.name().equals(name)) {
+                    result = field;
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A part of the filename with an optional prefix and suffix.
+     */
+    private abstract static class Segment {
+
+        final TrackField field;
+
+        final String defaultValue;
+
+        final String prefix;
+
+        final String suffix;
+
+        Segment(TrackField field, FieldInformation info) {
+            this.field = field;
+            this.defaultValue = info.defaultValue;
+            this.prefix = info.prefix;
+            this.suffix = info.suffix;
+        }
+
+        void render(MusicTrack track, StringBuilder sb) {
+            if (prefix != null) {
+                sb.append(prefix);
+            }
+            if (field != null) {
+                renderValue(field.getValue(track), sb);
+            } else {
+                sb.append(defaultValue);
+            }
+            if (suffix != null) {
+                sb.append(suffix);
+            }
+        }
+
+        abstract void renderValue(String value, StringBuilder sb);
+    }
+
+    /**
+     * The cleaned value of the field or the default value.
+     */
+    private static class TextSegment extends Segment {
+
+        TextSegment(TrackField field, FieldInformation info) {
+            super(field, info);
+        }
+
+        @Override
+        void renderValue(String value, StringBuilder sb) {
+            if ((value != null) && (value.length() > 0)) {
+                FilenameTransliterator.append(value, sb);
+            } else {
+                sb.append(defaultValue);
+            }
+        }
+    }
+
+    /**
+     * The first letter of the value without a leading article, the prefix again
+     * and the cleaned value.
+     */
+    private static class GroupSegment extends Segment {
+
+        private static final Set<String> STOP_WORDS = new HashSet<String>(
+                Arrays.asList("der ", "die ", "das ", "the "));
+
+        GroupSegment(TrackField field, FieldInformation info) {
+            super(field, info);
+        }
+
+        @Override
+        void renderValue(String value, StringBuilder sb) {
+            boolean startsWithStopWord = false;
+            if ((value != null) && (value.length() >= 5)) {
+                startsWithStopWord = STOP_WORDS.contains(value.substring(0, 4).toLowerCase());
+            }
+            String valueString = FilenameTransliterator.clear(value);
+            String name = ((valueString != null) && (valueString.length() > 0)) ? valueString : defaultValue;
+            if ((name != null) && (name.length() > 0)) {
+                int groupIndex = (startsWithStopWord && (name.length() > 3)) ? 3 : 0;
+                sb.append(Character.toUpperCase(name.charAt(groupIndex)));
+            }
+            if (prefix != null) {
+                sb.append(prefix);
+            }
+            sb.append(name);
+        }
+    }
+
+    /**
+     * The first number of the value with leading zeros.
+     */
+    private static class NumericSegment extends Segment {
+
+        private final Integer numericLength;
+
+        NumericSegment(TrackField field, FieldInformation info) {
+            super(field, info);
+            this.numericLength = info.numericLength;
+        }
+
+        @Override
+        void renderValue(String value, StringBuilder sb) {
+            if ((value != null) && (value.length() > 0)) {
+                Integer trackNumber = convertToNumeric(value);
+                if (trackNumber != null) {
+                    appendNumber(trackNumber, numericLength, sb);
+                }
+            } else {
+                appendNumber(0, numericLength, sb);
+            }
+        }
+    }
+
+    /**
+     * A fixed value for each configured value of the field or the default value.
+     */
+    private static class ValueSegment extends Segment {
+
+        private final Map<String, String> fixedValues;
+
+        ValueSegment(TrackField field, FieldInformation info) {
+            super(field, info);
+            this.fixedValues = new HashMap<String, String>(info.fixedValues);
+        }
+
+        @Override
+        void renderValue(String value, StringBuilder sb) {
+            String fixedValue = fixedValues.get(value);
+            if (fixedValue != null) {
+                sb.append(fixedValue);
+            } else {
+                sb.append(defaultValue);
+            }
+        }
+    }
 }
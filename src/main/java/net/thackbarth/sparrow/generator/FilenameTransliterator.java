@@ -0,0 +1,116 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.generator;
+
+/**
+ * This class removes all unwanted characters from a string in a single pass.
+ * <p/>
+ * German umlauts are replaced ("Ä" becomes "Ae"), every word separated by a
+ * space starts with an upper case letter and the rest of the word is lower case.
+ * Parentheses are removed before the first letter of a word is found, so
+ * "(disc 1)" becomes "Disc1". At last all characters except a-z, A-Z and 0-9
+ * are dropped.
+ */
+final class FilenameTransliterator {
+
+    private FilenameTransliterator() {
+        // only static methods
+    }
+
+    /**
+     * This method returns the cleaned string.
+     *
+     * @param value the string to clean
+     * @return the cleaned string or null if the value is null
+     */
+    static String clear(String value) {
+        String result = null;
+        if (value != null) {
+            StringBuilder builder = new StringBuilder(value.length());
+            append(value, builder);
+            result = builder.toString();
+        }
+        return result;
+    }
+
+    /**
+     * This method appends the cleaned string to the builder.
+     *
+     * @param value   the string to clean
+     * @param builder the builder for the result
+     */
+    static void append(String value, StringBuilder builder) {
+        boolean wordStart = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case ' ':
+                    wordStart = true;
+                    break;
+                case '(':
+                case ')':
+                    break;
+                case 'ä':
+                case 'Ä':
+                    appendChar('a', wordStart, builder);
+                    appendChar('e', false, builder);
+                    wordStart = false;
+                    break;
+                case 'ö':
+                case 'Ö':
+                    appendChar('o', wordStart, builder);
+                    appendChar('e', false, builder);
+                    wordStart = false;
+                    break;
+                case 'ü':
+                case 'Ü':
+                    appendChar('u', wordStart, builder);
+                    appendChar('e', false, builder);
+                    wordStart = false;
+                    break;
+                case 'ß':
+                    appendChar('s', wordStart, builder);
+                    appendChar('s', false, builder);
+                    wordStart = false;
+                    break;
+                default:
+                    appendChar(Character.toLowerCase(c), wordStart, builder);
+                    wordStart = false;
+            }
+        }
+    }
+
+    private static void appendChar(char lowerCase, boolean wordStart, StringBuilder builder) {
+        if (!wordStart) {
+            appendIfValid(lowerCase, builder);
+        } else if (lowerCase < 128) {
+            appendIfValid(Character.toUpperCase(lowerCase), builder);
+        } else {
+            // the upper case of some characters has more than one character
+            String upperCase = String.valueOf(lowerCase).toUpperCase();
+            for (int i = 0; i < upperCase.length(); i++) {
+                appendIfValid(upperCase.charAt(i), builder);
+            }
+        }
+    }
+
+    private static void appendIfValid(char c, StringBuilder builder) {
+        if (((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z')) || ((c >= '0') && (c <= '9'))) {
+            builder.append(c);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class counts durations in buckets with a doubling width, so the
+ * percentiles can be estimated without storing every value. The bucket of a
+ * duration of n microseconds is the number of bits of n. It can be used by
+ * several threads without locks.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 40;
+
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final double MICROS_PER_MILLI = TimeUnit.MILLISECONDS.toMicros(1);
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    private final AtomicLong count = new AtomicLong();
+
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * This method adds a duration.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    public void record(long nanos) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(nanos, 0));
+        int bucket = Math.min(Long.SIZE - Long.numberOfLeadingZeros(micros), BUCKETS - 1);
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max = maxNanos.get();
+        while ((nanos > max) && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * This method removes all durations.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long values = count.get();
+        return (values == 0) ? 0 : totalNanos.get() / NANOS_PER_MILLI / values;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * This method estimates a percentile by the upper bound of its bucket.
+     *
+     * @param percentile the percentile between 0 and 100
+     * @return the duration in milliseconds that the given percentage of values does not exceed
+     */
+    public double getPercentileMillis(double percentile) {
+        long rank = (long) Math.ceil(count.get() * percentile / 100);
+        double result = 0;
+        long seen = 0;
+        for (int i = 0; (i < BUCKETS) && (seen < rank); i++) {
+            seen += buckets.get(i);
+            result = Math.min((1L << i) / MICROS_PER_MILLI, getMaxMillis());
+        }
+        return result;
+    }
+
+    /**
+     * This method appends the histogram as a JSON object.
+     *
+     * @param builder the builder for the result
+     */
+    public void appendJson(StringBuilder builder) {
+        builder.append("{\"count\":").append(getCount())
+                .append(",\"meanMs\":").append(format(getMeanMillis()))
+                .append(",\"p50Ms\":").append(format(getPercentileMillis(50)))
+                .append(",\"p90Ms\":").append(format(getPercentileMillis(90)))
+                .append(",\"p99Ms\":").append(format(getPercentileMillis(99)))
+                .append(",\"maxMs\":").append(format(getMaxMillis()))
+                .append('}');
+    }
+
+    /* package */ static String format(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
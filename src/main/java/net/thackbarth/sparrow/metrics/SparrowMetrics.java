@@ -0,0 +1,342 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.metrics;
+
+import net.thackbarth.sparrow.SparrowConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class collects the metrics of a run: the number of walked, parsed, saved
+ * and moved files, the duration of the phases, the latencies of reading a file,
+ * flushing the session and moving a file, the throughput of every TrackReader and
+ * the depths of the queues of the crawl pipeline. The metrics are exported through
+ * JMX. At the end of a run they are logged as a JSON object and appended to the
+ * metrics_file, one line per run.
+ */
+@Component("metrics")
+@ManagedResource(objectName = "net.thackbarth.sparrow:name=metrics", description = "Metrics of the current run")
+public class SparrowMetrics {
+
+    /**
+     * The phases of a run.
+     */
+    public enum Phase {
+        CRAWL, MOVE, CLEANUP
+    }
+
+    private static Logger logger = LoggerFactory.getLogger(SparrowMetrics.class);
+
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final AtomicLong walkedFiles = new AtomicLong();
+
+    private final AtomicLong parsedFiles = new AtomicLong();
+
+    private final AtomicLong savedTracks = new AtomicLong();
+
+    private final AtomicLong movedFiles = new AtomicLong();
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+
+    private final LatencyHistogram readLatency = new LatencyHistogram();
+
+    private final LatencyHistogram flushLatency = new LatencyHistogram();
+
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    /* the latencies of the TrackReaders by the name of the format */
+    private final ConcurrentMap<String, LatencyHistogram> formatLatency
+            = new ConcurrentSkipListMap<String, LatencyHistogram>();
+
+    private final AtomicInteger workerQueueDepth = new AtomicInteger();
+
+    private final AtomicInteger maxWorkerQueueDepth = new AtomicInteger();
+
+    private final AtomicInteger writeQueueDepth = new AtomicInteger();
+
+    private final AtomicInteger maxWriteQueueDepth = new AtomicInteger();
+
+    private volatile long runStart = System.currentTimeMillis();
+
+    @Autowired(required = false)
+    private SparrowConfiguration configuration;
+
+    /**
+     * This method resets the metrics at the start of a run.
+     */
+    public void startRun() {
+        walkedFiles.set(0);
+        parsedFiles.set(0);
+        savedTracks.set(0);
+        movedFiles.set(0);
+        for (Phase phase : Phase.values()) {
+            phaseNanos.set(phase.ordinal(), 0);
+        }
+        readLatency.reset();
+        flushLatency.reset();
+        moveLatency.reset();
+        for (LatencyHistogram histogram : formatLatency.values()) {
+            histogram.reset();
+        }
+        workerQueueDepth.set(0);
+        maxWorkerQueueDepth.set(0);
+        writeQueueDepth.set(0);
+        maxWriteQueueDepth.set(0);
+        runStart = System.currentTimeMillis();
+    }
+
+    /**
+     * This method logs the summary of the run and appends it to the metrics file.
+     */
+    public void finishRun() {
+        String json = toJson();
+        logger.info("Metrics: " + json);
+        String metricsFile = (configuration == null) ? null : configuration.getMetricsFile();
+        if ((metricsFile != null) && (!metricsFile.isEmpty())) {
+            try {
+                OutputStream out = new FileOutputStream(metricsFile, true);
+                try {
+                    out.write((json + "\n").getBytes(Charset.forName("UTF-8")));
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                logger.error("Could not write the metrics to " + metricsFile, e);
+            }
+        }
+    }
+
+    public void fileWalked() {
+        walkedFiles.incrementAndGet();
+    }
+
+    public void fileParsed(long nanos) {
+        parsedFiles.incrementAndGet();
+        readLatency.record(nanos);
+    }
+
+    /**
+     * This method records the duration of reading the tags by the reader of a format.
+     *
+     * @param format the name of the format
+     * @param nanos  the duration in nanoseconds
+     */
+    public void fileRead(String format, long nanos) {
+        LatencyHistogram histogram = formatLatency.get(format);
+        if (histogram == null) {
+            formatLatency.putIfAbsent(format, new LatencyHistogram());
+            histogram = formatLatency.get(format);
+        }
+        histogram.record(nanos);
+    }
+
+    public void trackSaved() {
+        savedTracks.incrementAndGet();
+    }
+
+    public void sessionFlushed(long nanos) {
+        flushLatency.record(nanos);
+    }
+
+    public void fileMoved() {
+        movedFiles.incrementAndGet();
+    }
+
+    public void phaseFinished(Phase phase, long nanos) {
+        phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    /**
+     * This method stores the current depths of the queues of the crawl pipeline.
+     *
+     * @param workerQueue the number of files waiting for a worker
+     * @param writeQueue  the number of tracks waiting for the writer
+     */
+    public void queueDepths(int workerQueue, int writeQueue) {
+        workerQueueDepth.set(workerQueue);
+        writeQueueDepth.set(writeQueue);
+        updateMax(maxWorkerQueueDepth, workerQueue);
+        updateMax(maxWriteQueueDepth, writeQueue);
+    }
+
+    public LatencyHistogram getMoveLatency() {
+        return moveLatency;
+    }
+
+    @ManagedAttribute(description = "Files found by the crawler")
+    public long getWalkedFiles() {
+        return walkedFiles.get();
+    }
+
+    @ManagedAttribute(description = "Files whose tags were read")
+    public long getParsedFiles() {
+        return parsedFiles.get();
+    }
+
+    @ManagedAttribute(description = "Tracks stored in the database")
+    public long getSavedTracks() {
+        return savedTracks.get();
+    }
+
+    @ManagedAttribute(description = "Files moved to their target")
+    public long getMovedFiles() {
+        return movedFiles.get();
+    }
+
+    @ManagedAttribute(description = "Walked files per second of the crawl phase")
+    public double getWalkedPerSecond() {
+        return perSecond(walkedFiles.get(), Phase.CRAWL);
+    }
+
+    @ManagedAttribute(description = "Parsed files per second of the crawl phase")
+    public double getParsedPerSecond() {
+        return perSecond(parsedFiles.get(), Phase.CRAWL);
+    }
+
+    @ManagedAttribute(description = "Saved tracks per second of the crawl phase")
+    public double getSavedPerSecond() {
+        return perSecond(savedTracks.get(), Phase.CRAWL);
+    }
+
+    @ManagedAttribute(description = "Moved files per second of the move phase")
+    public double getMovedPerSecond() {
+        return perSecond(movedFiles.get(), Phase.MOVE);
+    }
+
+    @ManagedAttribute(description = "Mean duration of reading a file in milliseconds")
+    public double getReadMeanMillis() {
+        return readLatency.getMeanMillis();
+    }
+
+    @ManagedAttribute(description = "99th percentile of reading a file in milliseconds")
+    public double getReadP99Millis() {
+        return readLatency.getPercentileMillis(99);
+    }
+
+    @ManagedAttribute(description = "Mean duration of a flush in milliseconds")
+    public double getFlushMeanMillis() {
+        return flushLatency.getMeanMillis();
+    }
+
+    @ManagedAttribute(description = "99th percentile of a flush in milliseconds")
+    public double getFlushP99Millis() {
+        return flushLatency.getPercentileMillis(99);
+    }
+
+    @ManagedAttribute(description = "Mean duration of moving a file in milliseconds")
+    public double getMoveMeanMillis() {
+        return moveLatency.getMeanMillis();
+    }
+
+    @ManagedAttribute(description = "99th percentile of moving a file in milliseconds")
+    public double getMoveP99Millis() {
+        return moveLatency.getPercentileMillis(99);
+    }
+
+    @ManagedAttribute(description = "Files waiting for a worker")
+    public int getWorkerQueueDepth() {
+        return workerQueueDepth.get();
+    }
+
+    @ManagedAttribute(description = "Tracks waiting for the writer")
+    public int getWriteQueueDepth() {
+        return writeQueueDepth.get();
+    }
+
+    /**
+     * This method returns the metrics as a JSON object.
+     *
+     * @return the metrics of the run
+     */
+    @ManagedOperation(description = "The metrics of the run as JSON")
+    public String toJson() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("{\"start\":").append(runStart);
+        builder.append(",\"files\":{\"walked\":").append(walkedFiles.get())
+                .append(",\"parsed\":").append(parsedFiles.get())
+                .append(",\"saved\":").append(savedTracks.get())
+                .append(",\"moved\":").append(movedFiles.get()).append('}');
+        builder.append(",\"perSecond\":{\"walked\":").append(LatencyHistogram.format(getWalkedPerSecond()))
+                .append(",\"parsed\":").append(LatencyHistogram.format(getParsedPerSecond()))
+                .append(",\"saved\":").append(LatencyHistogram.format(getSavedPerSecond()))
+                .append(",\"moved\":").append(LatencyHistogram.format(getMovedPerSecond())).append('}');
+        builder.append(",\"phasesMs\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) {
+                builder.append(',');
+            }
+            builder.append('"').append(phase.name().toLowerCase()).append("\":")
+                    .append(TimeUnit.NANOSECONDS.toMillis(phaseNanos.get(phase.ordinal())));
+        }
+        builder.append('}');
+        builder.append(",\"latency\":{\"read\":");
+        readLatency.appendJson(builder);
+        builder.append(",\"flush\":");
+        flushLatency.appendJson(builder);
+        builder.append(",\"move\":");
+        moveLatency.appendJson(builder);
+        builder.append('}');
+        builder.append(",\"formats\":{");
+        boolean first = true;
+        for (Map.Entry<String, LatencyHistogram> entry : formatLatency.entrySet()) {
+            if (!first) {
+                builder.append(',');
+            }
+            first = false;
+            builder.append('"').append(entry.getKey()).append("\":{\"perSecond\":")
+                    .append(LatencyHistogram.format(perSecond(entry.getValue().getCount(), Phase.CRAWL)))
+                    .append(",\"latency\":");
+            entry.getValue().appendJson(builder);
+            builder.append('}');
+        }
+        builder.append('}');
+        builder.append(",\"maxQueueDepth\":{\"worker\":").append(maxWorkerQueueDepth.get())
+                .append(",\"write\":").append(maxWriteQueueDepth.get()).append('}');
+        builder.append('}');
+        return builder.toString();
+    }
+
+    private double perSecond(long count, Phase phase) {
+        long nanos = phaseNanos.get(phase.ordinal());
+        return (nanos == 0) ? 0 : count * NANOS_PER_SECOND / nanos;
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int current = max.get();
+        while ((value > current) && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
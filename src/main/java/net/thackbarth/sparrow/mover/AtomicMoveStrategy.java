@@ -0,0 +1,141 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.mover;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class moves a file with an atomic rename. If the target is on another file
+ * system, the file is copied to a temporary file next to the target, written to
+ * the disk and renamed to the target. The source is deleted at last, so a file
+ * is never lost if the copy fails.
+ * <p/>
+ * The number of renamed, copied and failed moves is counted.
+ */
+public class AtomicMoveStrategy implements MoveStrategy {
+
+    private static Logger logger = LoggerFactory.getLogger(AtomicMoveStrategy.class);
+
+    private static final String TEMP_PREFIX = ".sparrow-";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final AtomicLong renameCount = new AtomicLong();
+
+    private final AtomicLong copyCount = new AtomicLong();
+
+    private final AtomicLong copiedBytes = new AtomicLong();
+
+    private final AtomicLong failureCount = new AtomicLong();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void move(File source, File target) throws IOException {
+        Path sourcePath = source.toPath();
+        Path targetPath = target.toPath();
+        try {
+            if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+                // a rename would replace the target
+                throw new FileAlreadyExistsException(target.getAbsolutePath());
+            }
+            try {
+                Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+                renameCount.incrementAndGet();
+            } catch (AtomicMoveNotSupportedException e) {
+                logger.debug("Copy " + source.getAbsolutePath() + " to another file system");
+                copyAndDelete(sourcePath, targetPath);
+                copyCount.incrementAndGet();
+            }
+        } catch (IOException e) {
+            failureCount.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * This method copies the file to the target and deletes the source afterwards.
+     *
+     * @param source the file to move
+     * @param target the new location of the file
+     * @throws IOException if the file could not be copied
+     */
+    /* package */ void copyAndDelete(Path source, Path target) throws IOException {
+        Path temp = target.resolveSibling(TEMP_PREFIX + target.getFileName() + TEMP_SUFFIX);
+        try {
+            FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+            try {
+                // a temporary file left by a crash is overwritten
+                FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                try {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                    out.force(true);
+                    copiedBytes.addAndGet(size);
+                } finally {
+                    out.close();
+                }
+            } finally {
+                in.close();
+            }
+            Files.setLastModifiedTime(temp, Files.getLastModifiedTime(source));
+            // the temporary file is in the directory of the target
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.delete(source);
+    }
+
+    public long getRenameCount() {
+        return renameCount.get();
+    }
+
+    public long getCopyCount() {
+        return copyCount.get();
+    }
+
+    public long getCopiedBytes() {
+        return copiedBytes.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "AtomicMoveStrategy=[Renamed:" + renameCount + ";Copied:" + copyCount
+                + ";CopiedBytes:" + copiedBytes + ";Failed:" + failureCount + "]";
+    }
+}
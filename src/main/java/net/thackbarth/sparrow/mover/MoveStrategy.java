@@ -0,0 +1,36 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.mover;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The interface of an object that moves a music file to its new location.
+ */
+public interface MoveStrategy {
+
+    /**
+     * This method moves the file. The parent directory of the target must exist and
+     * the target must not exist.
+     *
+     * @param source the file to move
+     * @param target the new location of the file
+     * @throws IOException if the file could not be moved
+     */
+    void move(File source, File target) throws IOException;
+
+}
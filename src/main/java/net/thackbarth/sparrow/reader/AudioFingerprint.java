@@ -0,0 +1,219 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class computes a fingerprint of the audio data of a mp3 file, so a file
+ * that was renamed outside of sparrow can be found again.
+ * <p/>
+ * The ID3v2 tag at the start and the ID3v1 tag at the end are skipped, so a
+ * changed tag does not change the fingerprint. The start, the middle and the end
+ * of the audio data are read into a buffer of the thread and hashed with xxHash64,
+ * the length of the audio data is the seed. A file with a short audio part is
+ * hashed completely. The file is not mapped into memory, because a mapped file
+ * can not be moved on Windows until the mapping is collected.
+ */
+@Component
+public class AudioFingerprint {
+
+    private static Logger logger = LoggerFactory.getLogger(AudioFingerprint.class);
+
+    /* the size of a hashed part of the audio data */
+    private static final int WINDOW = 64 * 1024;
+
+    private static final int ID3V2_HEADER = 10;
+
+    private static final int ID3V2_FOOTER_FLAG = 0x10;
+
+    private static final int ID3V1_SIZE = 128;
+
+    /* holds the complete audio data of a short file */
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(3 * WINDOW);
+        }
+    };
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    /**
+     * This method computes the fingerprint of the file.
+     *
+     * @param file the file to read
+     * @return the fingerprint or null if the file could not be read
+     */
+    public Long compute(Path file) {
+        Long result = null;
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                long start = audioStart(channel, size);
+                long end = audioEnd(channel, size);
+                if (start < end) {
+                    long length = end - start;
+                    long hash;
+                    if (length <= 3L * WINDOW) {
+                        hash = hash(channel, start, length, length);
+                    } else {
+                        hash = hash(channel, start, WINDOW, length);
+                        hash = hash(channel, start + (length - WINDOW) / 2, WINDOW, hash);
+                        hash = hash(channel, end - WINDOW, WINDOW, hash);
+                    }
+                    result = hash;
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.error("Could not compute the fingerprint of " + file, e);
+        }
+        return result;
+    }
+
+    private static long audioStart(FileChannel channel, long size) throws IOException {
+        long start = 0;
+        ByteBuffer header = read(channel, 0, ID3V2_HEADER);
+        if ((header.remaining() == ID3V2_HEADER) && (header.get(0) == 'I') && (header.get(1) == 'D')
+                && (header.get(2) == '3')) {
+            long tagSize = ((header.get(6) & 0x7F) << 21) | ((header.get(7) & 0x7F) << 14)
+                    | ((header.get(8) & 0x7F) << 7) | (header.get(9) & 0x7F);
+            start = ID3V2_HEADER + tagSize;
+            if ((header.get(5) & ID3V2_FOOTER_FLAG) != 0) {
+                start += ID3V2_HEADER;
+            }
+        }
+        return Math.min(start, size);
+    }
+
+    private static long audioEnd(FileChannel channel, long size) throws IOException {
+        long end = size;
+        if (size >= ID3V1_SIZE) {
+            ByteBuffer trailer = read(channel, size - ID3V1_SIZE, 3);
+            if ((trailer.remaining() == 3) && (trailer.get(0) == 'T') && (trailer.get(1) == 'A')
+                    && (trailer.get(2) == 'G')) {
+                end -= ID3V1_SIZE;
+            }
+        }
+        return end;
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && (channel.read(buffer, position + buffer.position()) > 0)) {
+            // read until the buffer is full or the file ends
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long hash(FileChannel channel, long position, long length, long seed) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        buffer.clear();
+        buffer.limit((int) length);
+        while (buffer.hasRemaining() && (channel.read(buffer, position + buffer.position()) > 0)) {
+            // read until the window is full or the file ends
+        }
+        buffer.flip();
+        return xxHash64(buffer, seed);
+    }
+
+    /**
+     * This method computes the xxHash64 of the remaining bytes of the buffer.
+     *
+     * @param data the bytes to hash, the position of the buffer is not changed
+     * @param seed the seed of the hash
+     * @return the hash
+     */
+    /* package */ static long xxHash64(ByteBuffer data, long seed) {
+        ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int index = buffer.position();
+        int end = buffer.limit();
+        long hash;
+        if (end - index >= 32) {
+            long v1 = seed + PRIME1 + PRIME2;
+            long v2 = seed + PRIME2;
+            long v3 = seed;
+            long v4 = seed - PRIME1;
+            while (index <= end - 32) {
+                v1 = round(v1, buffer.getLong(index));
+                v2 = round(v2, buffer.getLong(index + 8));
+                v3 = round(v3, buffer.getLong(index + 16));
+                v4 = round(v4, buffer.getLong(index + 24));
+                index += 32;
+            }
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7)
+                    + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = seed + PRIME5;
+        }
+        hash += end - buffer.position();
+        while (index <= end - 8) {
+            hash ^= round(0, buffer.getLong(index));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+            index += 8;
+        }
+        if (index <= end - 4) {
+            hash ^= (buffer.getInt(index) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            index += 4;
+        }
+        while (index < end) {
+            hash ^= (buffer.get(index) & 0xFF) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+            index++;
+        }
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long hash, long value) {
+        return (hash ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+}
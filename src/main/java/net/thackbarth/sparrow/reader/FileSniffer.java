@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class classifies a file by the first 10 and the last 128 bytes before the
+ * tags are read, so a file without audio data never reaches the parsers. The bytes
+ * are read into a small direct buffer that every thread reuses.
+ */
+@Component
+public class FileSniffer {
+
+    /**
+     * The kind of a file.
+     */
+    public enum Kind {
+        /* the file starts with an ID3v2 tag */
+        ID3V2,
+        /* the file ends with an ID3v1 tag and has no ID3v2 tag */
+        ID3V1_ONLY,
+        /* the file starts with a MPEG frame without a tag */
+        MPEG,
+        /* the file starts with the FLAC stream marker */
+        FLAC,
+        /* the file contains no known audio data */
+        JUNK
+    }
+
+    private static final int HEAD_LENGTH = 10;
+
+    private static final int ID3V1_LENGTH = 128;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocateDirect(ID3V1_LENGTH);
+        }
+    };
+
+    /**
+     * This method classifies the file.
+     *
+     * @param file the file to classify
+     * @return the kind of the file
+     * @throws IOException if the file could not be read
+     */
+    public Kind sniff(Path file) throws IOException {
+        Kind result = Kind.JUNK;
+        ByteBuffer buffer = BUFFER.get();
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (read(channel, buffer, 0, HEAD_LENGTH)) {
+                if ((buffer.get(0) == 'I') && (buffer.get(1) == 'D') && (buffer.get(2) == '3')) {
+                    result = Kind.ID3V2;
+                } else if ((buffer.get(0) == 'f') && (buffer.get(1) == 'L') && (buffer.get(2) == 'a')
+                        && (buffer.get(3) == 'C')) {
+                    result = Kind.FLAC;
+                } else if (((buffer.get(0) & 0xFF) == 0xFF) && ((buffer.get(1) & 0xE0) == 0xE0)) {
+                    result = Kind.MPEG;
+                }
+            }
+            if ((result == Kind.JUNK) && (size >= ID3V1_LENGTH)
+                    && read(channel, buffer, size - ID3V1_LENGTH, ID3V1_LENGTH)
+                    && (buffer.get(0) == 'T') && (buffer.get(1) == 'A') && (buffer.get(2) == 'G')) {
+                result = Kind.ID3V1_ONLY;
+            }
+        } finally {
+            channel.close();
+        }
+        return result;
+    }
+
+    /* reads the given number of bytes to the start of the buffer, false at the end of the file */
+    private static boolean read(FileChannel channel, ByteBuffer buffer, long position, int length)
+            throws IOException {
+        buffer.clear();
+        buffer.limit(length);
+        int count = 0;
+        while ((count >= 0) && (buffer.hasRemaining())) {
+            count = channel.read(buffer, position + buffer.position());
+        }
+        buffer.flip();
+        return buffer.limit() == length;
+    }
+}
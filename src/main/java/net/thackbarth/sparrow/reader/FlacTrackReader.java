@@ -0,0 +1,212 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads the Vorbis comments of a FLAC file. Only the headers of the
+ * metadata blocks at the start of the file are read, the pictures and all other
+ * blocks are skipped and the audio frames are never touched.
+ */
+@Component
+public class FlacTrackReader implements TrackReader {
+
+    private static Logger logger = LoggerFactory.getLogger(FlacTrackReader.class);
+
+    private static final TagField[] TAG_FIELDS = TagField.values();
+
+    private static final String[] EXTENSIONS = {"flac"};
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int ID3V2_HEADER = 10;
+
+    private static final int BLOCK_HEADER = 4;
+
+    private static final int VORBIS_COMMENT = 4;
+
+    private static final int INVALID_BLOCK = 127;
+
+    private static final int ALBUM_ARTIST = 0;
+
+    private static final int GENRE = 1;
+
+    @Override
+    public String getName() {
+        return "flac";
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return EXTENSIONS.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readTags(Path file, MusicTrack track) throws IOException {
+        boolean result = false;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            TagData tagData = readComments(channel);
+            if (tagData != null) {
+                for (TagField field : TAG_FIELDS) {
+                    field.copy(tagData, track);
+                }
+                result = true;
+            } else {
+                logger.error("Could not find the Vorbis comments of " + file);
+            }
+        } finally {
+            channel.close();
+        }
+        return result;
+    }
+
+    private TagData readComments(FileChannel channel) throws IOException {
+        TagData result = null;
+        long position = 0;
+        ByteBuffer header = read(channel, 0, ID3V2_HEADER);
+        if ((header != null) && (header.get(0) == 'I') && (header.get(1) == 'D') && (header.get(2) == '3')) {
+            // some tools write an ID3v2 tag in front of the stream
+            position = ID3V2_HEADER + (((header.get(6) & 0x7F) << 21) | ((header.get(7) & 0x7F) << 14)
+                    | ((header.get(8) & 0x7F) << 7) | (header.get(9) & 0x7F));
+        }
+        ByteBuffer marker = read(channel, position, 4);
+        if ((marker != null) && (marker.get(0) == 'f') && (marker.get(1) == 'L') && (marker.get(2) == 'a')
+                && (marker.get(3) == 'C')) {
+            position += 4;
+            boolean last = false;
+            while ((!last) && (result == null)) {
+                ByteBuffer blockHeader = read(channel, position, BLOCK_HEADER);
+                if (blockHeader == null) {
+                    last = true;
+                } else {
+                    int type = blockHeader.get(0) & 0x7F;
+                    int length = ((blockHeader.get(1) & 0xFF) << 16) | ((blockHeader.get(2) & 0xFF) << 8)
+                            | (blockHeader.get(3) & 0xFF);
+                    last = ((blockHeader.get(0) & 0x80) != 0) || (type == INVALID_BLOCK);
+                    position += BLOCK_HEADER;
+                    if (type == VORBIS_COMMENT) {
+                        ByteBuffer block = read(channel, position, length);
+                        if (block != null) {
+                            result = parseComments(block.order(ByteOrder.LITTLE_ENDIAN));
+                        }
+                        last = true;
+                    }
+                    position += length;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * This method reads the fields of a Vorbis comment block. The first value of a
+     * field wins.
+     */
+    /* package */ static TagData parseComments(ByteBuffer block) {
+        TagData tagData = new TagData();
+        // the album artist and the genre are needed after all comments are read
+        String[] fields = new String[2];
+        int count = 0;
+        int position = 4;
+        if (block.limit() >= position) {
+            // the vendor string is skipped
+            position += block.getInt(0);
+        }
+        if ((position >= 4) && (position <= block.limit() - 4)) {
+            count = block.getInt(position);
+            position += 4;
+        }
+        boolean valid = true;
+        for (int i = 0; valid && (i < count) && (position <= block.limit() - 4); i++) {
+            int length = block.getInt(position);
+            position += 4;
+            valid = (length >= 0) && (length <= block.limit() - position);
+            if (valid) {
+                parseComment(tagData, new String(bytes(block, position, length), UTF_8), fields);
+                position += length;
+            }
+        }
+        if (tagData.getArtist() == null) {
+            tagData.setArtist(fields[ALBUM_ARTIST]);
+        }
+        String genre = fields[GENRE];
+        if (genre != null) {
+            int number = Id3TagReader.extractGenreNumber(genre);
+            tagData.setGenre(number);
+            tagData.setGenreDescription((number >= 0)
+                    ? Id3TagReader.genreDescription(number) : Id3TagReader.extractGenreDescription(genre));
+        }
+        return tagData;
+    }
+
+    private static void parseComment(TagData tagData, String comment, String[] fields) {
+        int separator = comment.indexOf('=');
+        if (separator > 0) {
+            String name = comment.substring(0, separator).toUpperCase();
+            String value = comment.substring(separator + 1);
+            if ("ALBUM".equals(name) && (tagData.getAlbum() == null)) {
+                tagData.setAlbum(value);
+            } else if ("ARTIST".equals(name) && (tagData.getArtist() == null)) {
+                tagData.setArtist(value);
+            } else if ("ALBUMARTIST".equals(name) && (fields[ALBUM_ARTIST] == null)) {
+                fields[ALBUM_ARTIST] = value;
+            } else if ("TITLE".equals(name) && (tagData.getTitle() == null)) {
+                tagData.setTitle(value);
+            } else if ("TRACKNUMBER".equals(name) && (tagData.getTrack() == null)) {
+                tagData.setTrack(value);
+            } else if ("GENRE".equals(name) && (fields[GENRE] == null)) {
+                fields[GENRE] = value;
+            }
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return bytes;
+    }
+
+    /* reads the given number of bytes or returns null at the end of the file */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long current = position;
+        int count = 0;
+        while ((count >= 0) && (buffer.hasRemaining())) {
+            count = channel.read(buffer, current);
+            current += Math.max(count, 0);
+        }
+        buffer.flip();
+        return (buffer.limit() == length) ? buffer : null;
+    }
+}
@@ -0,0 +1,414 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.reader;
+
+import com.mpatric.mp3agic.ID3v1Genres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class reads the tag fields of a mp3 file without scanning the MPEG frames.
+ * Only the header and the needed frames of the ID3v2 tag at the start of the file
+ * and the ID3v1 tag in the last 128 bytes are read, the pictures and all other
+ * frames are skipped.
+ * <p/>
+ * The values are the same as the values of mp3agic. Tags that need a feature which
+ * is not supported here (unsynchronisation, compressed or encrypted frames) or that
+ * are not consistent are not read, the caller has to use mp3agic for these files.
+ */
+@Component
+public class Id3TagReader {
+
+    private static Logger logger = LoggerFactory.getLogger(Id3TagReader.class);
+
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int HEADER_LENGTH = 10;
+
+    private static final int ID3V1_LENGTH = 128;
+
+    /* the frames of the tag versions 2.3 and 2.4 in the order of the fields */
+    private static final String[] FRAMES_V23 = {"TALB", "TPE1", "TCON", "TIT2", "TRCK"};
+
+    /* the frames of the tag version 2.2 in the order of the fields */
+    private static final String[] FRAMES_V22 = {"TAL", "TP1", "TCO", "TT2", "TRK"};
+
+    private static final int ALBUM = 0;
+
+    private static final int ARTIST = 1;
+
+    private static final int GENRE = 2;
+
+    private static final int TITLE = 3;
+
+    private static final int TRACK = 4;
+
+    /**
+     * This method reads the tag fields of the given file.
+     *
+     * @param file the file to read
+     * @return the tag fields or null if the file has to be read by mp3agic
+     * @throws IOException if the file could not be read
+     */
+    public TagData readTags(Path file) throws IOException {
+        TagData result = null;
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            result = readTags(channel);
+        } catch (MalformedTagException e) {
+            logger.debug("Tags of " + file + " must be read by mp3agic: " + e.getMessage());
+        } finally {
+            channel.close();
+        }
+        return result;
+    }
+
+    private TagData readTags(FileChannel channel) throws IOException, MalformedTagException {
+        long fileSize = channel.size();
+        String[] values = null;
+        long audioStart = 0;
+
+        ByteBuffer header = read(channel, 0, HEADER_LENGTH);
+        if ((header != null) && (header.get(0) == 'I') && (header.get(1) == 'D') && (header.get(2) == '3')) {
+            int tagSize = synchsafe(header, 6);
+            audioStart = HEADER_LENGTH + tagSize;
+            values = readFrames(channel, header, audioStart);
+        }
+
+        ByteBuffer id3v1 = null;
+        long id3v1Start = fileSize - ID3V1_LENGTH;
+        if (id3v1Start >= audioStart) {
+            id3v1 = read(channel, id3v1Start, ID3V1_LENGTH);
+            if ((id3v1.get(0) != 'T') || (id3v1.get(1) != 'A') || (id3v1.get(2) != 'G')) {
+                id3v1 = null;
+            }
+        }
+
+        if ((values == null) && (id3v1 == null)) {
+            throw new MalformedTagException("no tag found");
+        }
+        checkAudioStart(channel, audioStart);
+        return createTagData(values, id3v1);
+    }
+
+    private String[] readFrames(FileChannel channel, ByteBuffer header, long tagEnd)
+            throws IOException, MalformedTagException {
+        int version = header.get(3);
+        int flags = header.get(5);
+        if ((version < 2) || (version > 4)) {
+            throw new MalformedTagException("unsupported tag version " + version);
+        }
+        if ((flags & 0x80) != 0) {
+            throw new MalformedTagException("unsynchronisation");
+        }
+        if (tagEnd > channel.size()) {
+            throw new MalformedTagException("tag is larger than the file");
+        }
+
+        long position = HEADER_LENGTH;
+        if ((version == 2) && ((flags & 0x40) != 0)) {
+            throw new MalformedTagException("compressed tag");
+        } else if ((flags & 0x40) != 0) {
+            ByteBuffer extended = readFully(channel, position, 4);
+            position += (version == 3) ? 4 + extended.getInt(0) : synchsafe(extended, 0);
+        }
+
+        String[] frames = (version == 2) ? FRAMES_V22 : FRAMES_V23;
+        int headerLength = (version == 2) ? 6 : HEADER_LENGTH;
+        int idLength = (version == 2) ? 3 : 4;
+        String[] values = new String[frames.length];
+
+        boolean padding = false;
+        while ((!padding) && (position + headerLength <= tagEnd)) {
+            ByteBuffer frameHeader = readFully(channel, position, headerLength);
+            if (frameHeader.get(0) == 0) {
+                padding = true;
+            } else {
+                int frameSize = frameSize(frameHeader, version);
+                if ((frameSize <= 0) || (position + headerLength + frameSize > tagEnd)) {
+                    throw new MalformedTagException("invalid frame size " + frameSize);
+                }
+                int field = indexOf(frames, frameHeader, idLength);
+                if ((field >= 0) && (values[field] == null)) {
+                    if ((version > 2) && (isEncoded(frameHeader.get(9), version))) {
+                        throw new MalformedTagException("encoded frame");
+                    }
+                    ByteBuffer data = readFully(channel, position + headerLength, frameSize);
+                    values[field] = decodeText(data);
+                }
+                position += headerLength + frameSize;
+            }
+        }
+        return values;
+    }
+
+    private void checkAudioStart(FileChannel channel, long audioStart)
+            throws IOException, MalformedTagException {
+        // mp3agic rejects files without MPEG frames, so the first frame must follow the tag
+        ByteBuffer sync = read(channel, audioStart, 2);
+        if ((sync == null) || ((sync.get(0) & 0xFF) != 0xFF) || ((sync.get(1) & 0xE0) != 0xE0)) {
+            throw new MalformedTagException("no MPEG frame after the tag");
+        }
+    }
+
+    private TagData createTagData(String[] values, ByteBuffer id3v1) {
+        TagData tagData = new TagData();
+        if (values != null) {
+            tagData.setAlbum(values[ALBUM]);
+            tagData.setArtist(values[ARTIST]);
+            tagData.setTitle(values[TITLE]);
+            tagData.setTrack(values[TRACK]);
+            int genre = extractGenreNumber(values[GENRE]);
+            tagData.setGenre(genre);
+            if (genre >= 0) {
+                tagData.setGenreDescription(genreDescription(genre));
+            } else {
+                tagData.setGenreDescription(extractGenreDescription(values[GENRE]));
+            }
+        }
+        if (id3v1 != null) {
+            if (tagData.getTitle() == null) {
+                tagData.setTitle(id3v1Text(id3v1, 3, 30));
+            }
+            if (tagData.getArtist() == null) {
+                tagData.setArtist(id3v1Text(id3v1, 33, 30));
+            }
+            if (tagData.getAlbum() == null) {
+                tagData.setAlbum(id3v1Text(id3v1, 63, 30));
+            }
+            if ((tagData.getTrack() == null) && (id3v1.get(125) == 0)) {
+                int track = id3v1.get(126);
+                tagData.setTrack((track == 0) ? "" : Integer.toString(track));
+            }
+            int genre = id3v1.get(127) & 0xFF;
+            if (genre == 0xFF) {
+                genre = -1;
+            }
+            if (tagData.getGenre() == null) {
+                tagData.setGenre(genre);
+            }
+            if (tagData.getGenreDescription() == null) {
+                String description = genreDescription(genre);
+                tagData.setGenreDescription((description == null) ? "Unknown" : description);
+            }
+        }
+        return tagData;
+    }
+
+    private static String id3v1Text(ByteBuffer buffer, int offset, int length) {
+        int end = offset + length;
+        while ((end > offset) && ((buffer.get(end - 1) & 0xFF) <= ' ')) {
+            end--;
+        }
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, ISO_8859_1);
+    }
+
+    private static String decodeText(ByteBuffer data) throws MalformedTagException {
+        int encoding = data.get(0);
+        int start = 1;
+        int end = data.limit();
+        Charset charset;
+        boolean wide = false;
+        switch (encoding) {
+            case 0:
+                charset = ISO_8859_1;
+                break;
+            case 1:
+                charset = UTF_16LE;
+                if ((end - start >= 2) && ((data.get(start) & 0xFF) == 0xFE) && ((data.get(start + 1) & 0xFF) == 0xFF)) {
+                    charset = UTF_16BE;
+                }
+                wide = true;
+                break;
+            case 2:
+                charset = UTF_16BE;
+                wide = true;
+                break;
+            case 3:
+                charset = UTF_8;
+                break;
+            default:
+                throw new MalformedTagException("unknown text encoding " + encoding);
+        }
+        start += bomLength(data, start, end);
+        // only one terminator is removed like in mp3agic
+        if (wide) {
+            if ((end - start >= 2) && (data.get(end - 1) == 0) && (data.get(end - 2) == 0)) {
+                end -= 2;
+            }
+        } else if ((end > start) && (data.get(end - 1) == 0)) {
+            end--;
+        }
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    private static int bomLength(ByteBuffer data, int start, int end) {
+        int length = 0;
+        int first = (end > start) ? data.get(start) & 0xFF : -1;
+        int second = (end > start + 1) ? data.get(start + 1) & 0xFF : -1;
+        if (((first == 0xFE) && (second == 0xFF)) || ((first == 0xFF) && (second == 0xFE))) {
+            length = 2;
+        } else if ((first == 0xEF) && (second == 0xBB) && (end > start + 2) && ((data.get(start + 2) & 0xFF) == 0xBF)) {
+            length = 3;
+        }
+        return length;
+    }
+
+    /* package */ static int extractGenreNumber(String value) {
+        int genre = -1;
+        if ((value != null) && (!value.isEmpty())) {
+            String text = value.trim();
+            if (text.startsWith("(")) {
+                int end = text.indexOf(')');
+                if (end > 0) {
+                    text = text.substring(1, end);
+                }
+            }
+            try {
+                genre = Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                genre = genreNumber(extractGenreDescription(value));
+            }
+        }
+        return genre;
+    }
+
+    /* package */ static String extractGenreDescription(String value) {
+        String description = null;
+        if (value != null) {
+            String text = value.trim();
+            if (text.startsWith("(")) {
+                int end = text.indexOf(')');
+                if (end > 0) {
+                    text = text.substring(end + 1);
+                }
+            }
+            if (!text.isEmpty()) {
+                description = text;
+            }
+        }
+        return description;
+    }
+
+    private static int genreNumber(String description) {
+        int genre = -1;
+        for (int i = 0; (description != null) && (genre < 0) && (i < ID3v1Genres.GENRES.length); i++) {
+            if (ID3v1Genres.GENRES[i].equalsIgnoreCase(description)) {
+                genre = i;
+            }
+        }
+        return genre;
+    }
+
+    /* package */ static String genreDescription(int genre) {
+        return ((genre >= 0) && (genre < ID3v1Genres.GENRES.length)) ? ID3v1Genres.GENRES[genre] : null;
+    }
+
+    private static int frameSize(ByteBuffer frameHeader, int version) {
+        int size;
+        if (version == 2) {
+            size = ((frameHeader.get(3) & 0xFF) << 16) | ((frameHeader.get(4) & 0xFF) << 8)
+                    | (frameHeader.get(5) & 0xFF);
+        } else if (version == 3) {
+            size = frameHeader.getInt(4);
+        } else {
+            size = synchsafe(frameHeader, 4);
+        }
+        return size;
+    }
+
+    private static boolean isEncoded(byte formatFlags, int version) {
+        // 2.3: compression, encryption / 2.4: compression, encryption, unsynchronisation, data length
+        int mask = (version == 3) ? 0xC0 : 0x0F;
+        return (formatFlags & mask) != 0;
+    }
+
+    private static int indexOf(String[] frames, ByteBuffer frameHeader, int idLength) {
+        int result = -1;
+        for (int i = 0; (result < 0) && (i < frames.length); i++) {
+            boolean equal = true;
+            for (int j = 0; equal && (j < idLength); j++) {
+                equal = (frames[i].charAt(j) == frameHeader.get(j));
+            }
+            if (equal) {
+                result = i;
+            }
+        }
+        return result;
+    }
+
+    private static int synchsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+                | ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+    }
+
+    /* reads the given number of bytes or returns null at the end of the file */
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long current = position;
+        int count = 0;
+        while ((count >= 0) && (buffer.hasRemaining())) {
+            count = channel.read(buffer, current);
+            current += Math.max(count, 0);
+        }
+        buffer.flip();
+        return (buffer.limit() == length) ? buffer : null;
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, long position, int length)
+            throws IOException, MalformedTagException {
+        ByteBuffer buffer = read(channel, position, length);
+        if (buffer == null) {
+            throw new MalformedTagException("unexpected end of file");
+        }
+        return buffer;
+    }
+
+    /**
+     * This exception is thrown if a tag can not be read by this class.
+     */
+    private static class MalformedTagException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        MalformedTagException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import com.mpatric.mp3agic.InvalidDataException;
+import com.mpatric.mp3agic.Mp3File;
+import com.mpatric.mp3agic.UnsupportedTagException;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * This class reads the tags of a mp3 file. The tags are read by the Id3TagReader,
+ * mp3agic is only used for the files the Id3TagReader does not support.
+ */
+@Component
+public class Mp3TrackReader implements TrackReader {
+
+    public static final String EXCEPTION_MESSAGE_MP3 = "Could not load mp3 tags";
+
+    private static Logger logger = LoggerFactory.getLogger(Mp3TrackReader.class);
+
+    private static final TagField[] TAG_FIELDS = TagField.values();
+
+    private static final String[] EXTENSIONS = {"mp3"};
+
+    @Autowired
+    private Id3TagReader tagReader;
+
+    @Override
+    public String getName() {
+        return "mp3";
+    }
+
+    @Override
+    public String[] getExtensions() {
+        return EXTENSIONS.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean readTags(Path file, MusicTrack track) throws IOException {
+        boolean result = false;
+        TagData tagData = tagReader.readTags(file);
+        if (tagData != null) {
+            for (TagField field : TAG_FIELDS) {
+                field.copy(tagData, track);
+            }
+            result = true;
+        } else {
+            // the tags could not be read without mp3agic
+            try {
+                Mp3File mp3file = new Mp3File(file.toString());
+                for (TagField field : TAG_FIELDS) {
+                    field.copy(mp3file, track);
+                }
+                result = true;
+            } catch (UnsupportedTagException e) {
+                logFailure(file, e);
+            } catch (InvalidDataException e) {
+                logFailure(file, e);
+            }
+        }
+        return result;
+    }
+
+    private void logFailure(Path file, Exception e) {
+        // the stack trace of mp3agic does not help to repair the file
+        logger.error(EXCEPTION_MESSAGE_MP3 + " of " + file + ": " + e.getMessage());
+        logger.debug(EXCEPTION_MESSAGE_MP3, e);
+    }
+
+}
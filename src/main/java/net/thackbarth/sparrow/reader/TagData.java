@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.reader;
+
+/**
+ * This class holds the tag fields of a music file that are needed to sort it.
+ */
+public class TagData {
+
+    private String album;
+
+    private String artist;
+
+    private Integer genre;
+
+    private String genreDescription;
+
+    private String title;
+
+    private String track;
+
+    /**
+     * default constructor.
+     */
+    public TagData() {
+        // nothing here
+    }
+
+    public String getAlbum() {
+        return album;
+    }
+
+    public void setAlbum(String album) {
+        this.album = album;
+    }
+
+    public String getArtist() {
+        return artist;
+    }
+
+    public void setArtist(String artist) {
+        this.artist = artist;
+    }
+
+    public Integer getGenre() {
+        return genre;
+    }
+
+    public void setGenre(Integer genre) {
+        this.genre = genre;
+    }
+
+    public String getGenreDescription() {
+        return genreDescription;
+    }
+
+    public void setGenreDescription(String genreDescription) {
+        this.genreDescription = genreDescription;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getTrack() {
+        return track;
+    }
+
+    public void setTrack(String track) {
+        this.track = track;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("TagData=[Artist:'");
+        builder.append(artist);
+        builder.append("';Album:'");
+        builder.append(album);
+        builder.append("';Title:'");
+        builder.append(title);
+        builder.append("';Track:'");
+        builder.append(track);
+        builder.append("';Genre:");
+        builder.append(genre);
+        builder.append(";GenreDescription:'");
+        builder.append(genreDescription);
+        builder.append("']");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.reader;
+
+import com.mpatric.mp3agic.ID3v1;
+import com.mpatric.mp3agic.ID3v2;
+import com.mpatric.mp3agic.Mp3File;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This enum maps the tag fields to the properties of a MusicTrack. A new field
+ * only needs a new constant, the accessors are called directly for every file.
+ */
+public enum TagField {
+
+    ALBUM {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getAlbum();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getAlbum();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getAlbum();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setAlbum((String) value);
+        }
+    },
+
+    ARTIST {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getArtist();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getArtist();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getArtist();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setArtist((String) value);
+        }
+    },
+
+    GENRE {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getGenre();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getGenre();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getGenre();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setGenre((Integer) value);
+        }
+    },
+
+    GENRE_DESCRIPTION {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getGenreDescription();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getGenreDescription();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getGenreDescription();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setGenreDescription((String) value);
+        }
+    },
+
+    TITLE {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getTitle();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getTitle();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getTitle();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setTitle((String) value);
+        }
+    },
+
+    TRACK {
+        @Override
+        Object get(ID3v2 tag) {
+            return tag.getTrack();
+        }
+
+        @Override
+        Object get(ID3v1 tag) {
+            return tag.getTrack();
+        }
+
+        @Override
+        Object get(TagData tagData) {
+            return tagData.getTrack();
+        }
+
+        @Override
+        void set(MusicTrack track, Object value) {
+            track.setTrack((String) value);
+        }
+    };
+
+    private static Logger logger = LoggerFactory.getLogger(TagField.class);
+
+    /**
+     * This method copies the field from the tags of the mp3 file to the track. The
+     * value of the ID3v2 tag is used if it exists, otherwise the value of the ID3v1
+     * tag. A missing value does not change the track.
+     *
+     * @param mp3file the mp3 file read by mp3agic
+     * @param track   the track to store the value
+     */
+    public void copy(Mp3File mp3file, MusicTrack track) {
+        try {
+            Object value = null;
+            if (mp3file.hasId3v2Tag()) {
+                value = get(mp3file.getId3v2Tag());
+            }
+            if ((null == value) && (mp3file.hasId3v1Tag())) {
+                value = get(mp3file.getId3v1Tag());
+            }
+            if (null != value) {
+                set(track, value);
+            }
+        } catch (RuntimeException e) {
+            // mp3agic fails on some broken frames
+            logger.error("Could not copy field " + this + "!", e);
+        }
+    }
+
+    /**
+     * This method copies the field from the tag data to the track. A missing value
+     * does not change the track.
+     *
+     * @param tagData the tag data
+     * @param track   the track to store the value
+     */
+    public void copy(TagData tagData, MusicTrack track) {
+        Object value = get(tagData);
+        if (null != value) {
+            set(track, value);
+        }
+    }
+
+    abstract Object get(ID3v2 tag);
+
+    abstract Object get(ID3v1 tag);
+
+    abstract Object get(TagData tagData);
+
+    abstract void set(MusicTrack track, Object value);
+}
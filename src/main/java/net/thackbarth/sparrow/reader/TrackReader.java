@@ -0,0 +1,53 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * The interface of an object that reads the tags of one audio format. Every reader
+ * is a spring bean, the TrackReaders select the reader of a file.
+ */
+public interface TrackReader {
+
+    /**
+     * This method returns the name of the format, it is used in the metrics.
+     *
+     * @return the name of the format
+     */
+    String getName();
+
+    /**
+     * This method returns the extensions of the files that are read by this reader.
+     *
+     * @return the lower case extensions without dot
+     */
+    String[] getExtensions();
+
+    /**
+     * This method reads the tags of the given file and stores them to the track.
+     *
+     * @param file  the file to read
+     * @param track the object to store the information from the file
+     * @return false if the tags could not be read
+     * @throws IOException if the file could not be read
+     */
+    boolean readTags(Path file, MusicTrack track) throws IOException;
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class selects the TrackReader of a file by the extension of the file name.
+ * All TrackReader beans of the context are registered, the mp3 reader is the
+ * default reader and wins if two readers have the same extension.
+ */
+@Component
+public class TrackReaders implements InitializingBean {
+
+    private static Logger logger = LoggerFactory.getLogger(TrackReaders.class);
+
+    @Autowired
+    private List<TrackReader> readers;
+
+    @Autowired
+    private Mp3TrackReader defaultReader;
+
+    private final Map<String, TrackReader> byExtension = new HashMap<String, TrackReader>();
+
+    /**
+     * This method registers the extensions of the readers.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        for (TrackReader reader : readers) {
+            register(reader);
+        }
+        register(defaultReader);
+        logger.info("Readers: " + byExtension.keySet());
+    }
+
+    /**
+     * This method returns the reader of the file.
+     *
+     * @param file the file to read
+     * @return the reader or null if the format of the file is not supported
+     */
+    public TrackReader forFile(Path file) {
+        TrackReader result = null;
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        if (dot >= 0) {
+            result = byExtension.get(name.substring(dot + 1).toLowerCase());
+        }
+        return result;
+    }
+
+    private void register(TrackReader reader) {
+        for (String extension : reader.getExtensions()) {
+            byExtension.put(extension.toLowerCase(), reader);
+        }
+    }
+}
@@ -0,0 +1 @@
+java -jar sparrow.jar --watch
\ No newline at end of file
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.io.File;
+
+/**
+ * This class is the base of the tests that work in a temporary data folder. The
+ * folder is the data folder of the configuration during a test. Afterwards the
+ * data folder is restored and all tables are cleared, so the next test class in
+ * the shared context starts with an empty database.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"/applicationContext.xml"})
+public abstract class AbstractDataFolderTest {
+
+    private static final String[] ENTITIES = {"MusicTrack", "DirectoryCheckpoint", "FailedMove", "QuarantinedFile"};
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Autowired
+    protected SparrowConfiguration configuration;
+
+    @Autowired
+    protected SessionFactory sessionFactory;
+
+    @Autowired
+    private TargetPathRegistry targets;
+
+    @Autowired
+    private Quarantine quarantine;
+
+    /* the temporary data folder of the test */
+    protected File folder;
+
+    /* the folder with the test files */
+    protected String dataFolder;
+
+    @Before
+    public void useDataFolder() {
+        folder = temporaryFolder.getRoot();
+        dataFolder = configuration.getDataFolder();
+        configuration.setDataFolder(folder.getPath());
+    }
+
+    @After
+    public void clearDatabase() {
+        configuration.setDataFolder(dataFolder);
+        Session session = sessionFactory.openSession();
+        try {
+            for (String entity : ENTITIES) {
+                session.createQuery("delete from " + entity).executeUpdate();
+            }
+        } finally {
+            session.close();
+        }
+        // the crawler keeps the registry and the quarantine between the runs
+        targets.clear();
+        quarantine.load();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+public class DatabaseCleanerTest extends AbstractDataFolderTest {
+
+    /* more tracks than fit into two batches of the scan */
+    private static final int TRACK_COUNT = 13;
+
+    @Autowired
+    private DatabaseCleaner cleaner;
+
+    @Test
+    public void testRemoveMissingFiles() throws IOException {
+        List<String> existing = new LinkedList<String>();
+        Session session = sessionFactory.openSession();
+        try {
+            for (int i = 0; i < TRACK_COUNT; i++) {
+                String filePath = "/Track-" + i + ".mp3";
+                // every third file is missing, in the first and in the last batch too
+                if ((i % 3) != 0) {
+                    FileUtils.touch(new File(folder, filePath));
+                    existing.add(filePath);
+                }
+                MusicTrack track = new MusicTrack();
+                track.setArtist("Artist");
+                track.setTitle("Title " + i);
+                track.setFilePath(filePath);
+                session.save(track);
+            }
+            session.flush();
+            session.clear();
+            Assert.assertTrue("The tracks must fill more than two batches",
+                    TRACK_COUNT > 2 * configuration.getBatchSize());
+
+            cleaner.removeMissingFiles(session);
+
+            List<String> remaining = new LinkedList<String>();
+            for (Object obj : session.createQuery("select t.filePath from MusicTrack t order by t.id").list()) {
+                remaining.add((String) obj);
+            }
+            Assert.assertEquals("Only the tracks of missing files must be removed", existing, remaining);
+        } finally {
+            session.close();
+        }
+    }
+}
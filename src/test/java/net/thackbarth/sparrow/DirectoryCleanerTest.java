@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class DirectoryCleanerTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private DirectoryCleaner cleaner;
+
+    private Boolean fullCleanup;
+
+    @Before
+    public void setUp() {
+        fullCleanup = configuration.getFullCleanup();
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setFullCleanup(fullCleanup);
+    }
+
+    @Test
+    public void testDeleteEmptyDirs() throws IOException {
+        Assert.assertTrue(new File(folder, "A/B/C").mkdirs());
+        Assert.assertTrue(new File(folder, "A/B/D").mkdirs());
+        FileUtils.writeStringToFile(new File(folder, "A/E/file.mp3"), "file", "UTF-8");
+        Assert.assertTrue(new File(folder, "F/G").mkdirs());
+
+        configuration.setFullCleanup(false);
+        cleaner.deleteEmptyDirs(Arrays.asList(path("A/B"), path("A/B/C"), path("A/B/D")));
+
+        Assert.assertFalse("The emptied directory must be deleted", new File(folder, "A/B").exists());
+        Assert.assertTrue("A directory with files must be kept", new File(folder, "A/E").exists());
+        Assert.assertTrue("Only the given directories are checked", new File(folder, "F/G").exists());
+
+        configuration.setFullCleanup(true);
+        cleaner.deleteEmptyDirs(Arrays.<Path>asList());
+
+        Assert.assertFalse("The full cleanup must delete all empty directories", new File(folder, "F").exists());
+        Assert.assertTrue("A directory with files must be kept", new File(folder, "A/E").exists());
+        Assert.assertTrue("The data folder must be kept", folder.exists());
+    }
+
+    private Path path(String directory) {
+        return new File(folder, directory).toPath();
+    }
+}
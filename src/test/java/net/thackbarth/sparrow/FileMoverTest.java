@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.FailedMove;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class FileMoverTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private FileMover mover;
+
+    private Session session;
+
+    @Before
+    public void setUp() {
+        configuration.setMoveActive(true);
+        configuration.setRetryDelay(60000L);
+        session = sessionFactory.openSession();
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setMoveActive(false);
+        configuration.setRetryDelay(0L);
+        session.close();
+    }
+
+    @Test
+    public void testFailedMove() throws IOException {
+        MusicTrack track = new MusicTrack();
+        track.setArtist("Artist");
+        track.setTitle("Title");
+        track.setFilePath("/Title.mp3");
+        track.setTargetFilePath("/Artist/Title.mp3");
+        session.save(track);
+        session.flush();
+        session.clear();
+
+        // the file does not exist yet
+        mover.moveFiles(session);
+        FailedMove failedMove = loadFailedMove();
+        Assert.assertNotNull("The failed move must be stored", failedMove);
+        Assert.assertEquals(Integer.valueOf(1), failedMove.getAttempts());
+
+        // the move is not tried again before the retry delay passed
+        FileUtils.writeStringToFile(new File(folder, "Title.mp3"), "title", "UTF-8");
+        mover.moveFiles(session);
+        Assert.assertEquals(Integer.valueOf(1), loadFailedMove().getAttempts());
+        Assert.assertTrue("The file must not be moved", new File(folder, "Title.mp3").exists());
+
+        configuration.setRetryDelay(0L);
+        mover.moveFiles(session);
+        Assert.assertNull("The failed move must be removed after the move", loadFailedMove());
+        Assert.assertTrue("The file is not moved", new File(folder, "Artist/Title.mp3").exists());
+        MusicTrack moved = (MusicTrack) session.get(MusicTrack.class, track.getId());
+        Assert.assertTrue(moved.isFilePathCorrect());
+        Assert.assertEquals("/Artist/Title.mp3", moved.getFilePath());
+    }
+
+    private FailedMove loadFailedMove() {
+        session.clear();
+        List list = session.createQuery("from FailedMove").list();
+        Assert.assertTrue("There must be at most one failed move", list.size() <= 1);
+        return list.isEmpty() ? null : (FailedMove) list.get(0);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class FingerprintIndexTest {
+
+    public static final int TRACK_COUNT = 10000;
+
+    @Test
+    public void testIndex() {
+        FingerprintIndex index = new FingerprintIndex(0);
+        for (int i = 1; i <= TRACK_COUNT; i++) {
+            index.put(i * 0x9E3779B97F4A7C15L, i);
+        }
+        // two copies of the same audio data
+        index.put(42L, TRACK_COUNT + 1);
+        index.put(42L, TRACK_COUNT + 2);
+
+        Assert.assertEquals("The size of the index is not correct", TRACK_COUNT + 2, index.size());
+        for (int i = 1; i <= TRACK_COUNT; i++) {
+            Assert.assertEquals("The id is not correct", Collections.singletonList(Long.valueOf(i)),
+                    index.findIds(i * 0x9E3779B97F4A7C15L));
+        }
+        Assert.assertEquals(Arrays.asList((long) TRACK_COUNT + 1, (long) TRACK_COUNT + 2), index.findIds(42L));
+        Assert.assertTrue("The fingerprint must be unknown", index.findIds(43L).isEmpty());
+    }
+
+    @Test
+    public void testTake() {
+        FingerprintIndex index = new FingerprintIndex(2);
+        index.put(42L, 1);
+        index.put(42L, 2);
+
+        Assert.assertTrue(index.take(42L, 1));
+        Assert.assertFalse("A track is only taken once", index.take(42L, 1));
+        Assert.assertFalse("The track is unknown", index.take(43L, 2));
+        Assert.assertEquals(Collections.singletonList(2L), index.findIds(42L));
+        Assert.assertTrue(index.take(42L, 2));
+        Assert.assertTrue(index.findIds(42L).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"/applicationContext.xml"})
+public class IdSequenceTest {
+
+    /* an id of an identity column of an older database */
+    private static final long IDENTITY_ID = 100000;
+
+    private static final int IDS_PER_VALUE = 50;
+
+    @Autowired
+    private IdSequence sequence;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @After
+    public void tearDown() {
+        Session session = sessionFactory.openSession();
+        try {
+            session.createQuery("delete from MusicTrack").executeUpdate();
+        } finally {
+            session.close();
+        }
+    }
+
+    @Test
+    public void testSequenceAboveStoredIds() {
+        Session session = sessionFactory.openSession();
+        try {
+            session.createSQLQuery("insert into tracks (id, artist, title, filePathCorrect)"
+                    + " values (" + IDENTITY_ID + ", 'Artist', 'Title', false)").executeUpdate();
+            sequence.afterPropertiesSet();
+
+            // the generator may still hand out a block of ids it fetched before
+            MusicTrack track = null;
+            for (int i = 0; i <= IDS_PER_VALUE; i++) {
+                track = new MusicTrack();
+                track.setArtist("Artist");
+                track.setTitle("Title");
+                session.save(track);
+            }
+            session.flush();
+            Assert.assertTrue("The new id must be above the stored ids: " + track.getId(),
+                    track.getId() > IDENTITY_ID);
+        } finally {
+            session.close();
+        }
+    }
+}
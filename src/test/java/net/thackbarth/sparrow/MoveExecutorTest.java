@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.metrics.LatencyHistogram;
+import net.thackbarth.sparrow.mover.AtomicMoveStrategy;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class MoveExecutorTest {
+
+    @Rule
+    public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File folder;
+
+    private MoveExecutor executor;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = temporaryFolder.getRoot();
+        executor = new MoveExecutor(2, true, new AtomicMoveStrategy(), new LatencyHistogram());
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testMoves() throws Exception {
+        // a file that is moved onto the old place of another file
+        MoveExecutor.Move first = createMove("a.mp3", "A/Album/b.mp3", "first");
+        MoveExecutor.Move second = createMove("A/Album/b.mp3", "B/Album/c.mp3", "second");
+        // two files that want the same target
+        MoveExecutor.Move third = createMove("d.mp3", "B/Album/d.mp3", "third");
+        MoveExecutor.Move fourth = createMove("e.mp3", "B/Album/d.mp3", "fourth");
+        // two files that want to swap their places
+        MoveExecutor.Move fifth = createMove("f.mp3", "g.mp3", "fifth");
+        MoveExecutor.Move sixth = createMove("g.mp3", "f.mp3", "sixth");
+
+        executor.execute(Arrays.asList(first, second, third, fourth, fifth, sixth));
+
+        Assert.assertEquals(MoveExecutor.Result.MOVED, first.getResult());
+        Assert.assertEquals(MoveExecutor.Result.MOVED, second.getResult());
+        Assert.assertEquals(MoveExecutor.Result.MOVED, third.getResult());
+        Assert.assertEquals(MoveExecutor.Result.CONFLICT, fourth.getResult());
+        Assert.assertEquals(MoveExecutor.Result.CONFLICT, fifth.getResult());
+        Assert.assertEquals(MoveExecutor.Result.CONFLICT, sixth.getResult());
+
+        Assert.assertEquals("first", FileUtils.readFileToString(new File(folder, "A/Album/b.mp3"), "UTF-8"));
+        Assert.assertEquals("second", FileUtils.readFileToString(new File(folder, "B/Album/c.mp3"), "UTF-8"));
+        Assert.assertEquals("third", FileUtils.readFileToString(new File(folder, "B/Album/d.mp3"), "UTF-8"));
+        Assert.assertEquals("fourth", FileUtils.readFileToString(new File(folder, "e.mp3"), "UTF-8"));
+        Assert.assertEquals("fifth", FileUtils.readFileToString(new File(folder, "f.mp3"), "UTF-8"));
+    }
+
+    private MoveExecutor.Move createMove(String source, String target, String content) throws IOException {
+        File sourceFile = new File(folder, source);
+        if (!sourceFile.exists()) {
+            FileUtils.writeStringToFile(sourceFile, content, "UTF-8");
+        }
+        MusicTrack track = new MusicTrack();
+        track.setFilePath("/" + source);
+        track.setTargetFilePath("/" + target);
+        return new MoveExecutor.Move(track, sourceFile, new File(folder, target));
+    }
+}
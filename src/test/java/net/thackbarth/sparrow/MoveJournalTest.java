@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class MoveJournalTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private MoveJournal journal;
+
+    private String moveJournal;
+
+    @Before
+    public void setUp() {
+        moveJournal = configuration.getMoveJournal();
+        configuration.setMoveJournal(new File(folder, "move.journal").getPath());
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setMoveJournal(moveJournal);
+    }
+
+    @Test
+    public void testRecover() throws IOException {
+        MusicTrack moved = saveTrack("/moved.mp3", "/Music/Moved.mp3");
+        MusicTrack notMoved = saveTrack("/notmoved.mp3", "/Music/NotMoved.mp3");
+        // the process died after the first file was moved
+        FileUtils.writeStringToFile(new File(folder, "Music/Moved.mp3"), "moved", "UTF-8");
+        FileUtils.writeStringToFile(new File(folder, "notmoved.mp3"), "not moved", "UTF-8");
+
+        journal.open();
+        journal.writeIntents(Collections.singletonList(createMove(moved)));
+        journal.writeIntents(Collections.singletonList(createMove(notMoved)));
+        journal.close(false);
+
+        journal.recover();
+
+        Session session = sessionFactory.openSession();
+        try {
+            MusicTrack track = (MusicTrack) session.get(MusicTrack.class, moved.getId());
+            Assert.assertEquals("/Music/Moved.mp3", track.getFilePath());
+            Assert.assertTrue("The moved track must be correct", track.isFilePathCorrect());
+            track = (MusicTrack) session.get(MusicTrack.class, notMoved.getId());
+            Assert.assertEquals("/notmoved.mp3", track.getFilePath());
+            Assert.assertFalse("The track must still be moved", track.isFilePathCorrect());
+
+            session.createQuery("delete from MusicTrack t where t.id in (:ids)")
+                    .setParameterList("ids", new Long[]{moved.getId(), notMoved.getId()})
+                    .executeUpdate();
+        } finally {
+            session.close();
+        }
+        Assert.assertFalse("The journal must be deleted", new File(folder, "move.journal").exists());
+    }
+
+    @Test
+    public void testRecoverCopy() throws IOException {
+        MusicTrack copied = saveTrack("/copied.mp3", "/Music/Copied.mp3");
+        MusicTrack conflict = saveTrack("/conflict.mp3", "/Music/Conflict.mp3");
+        // the process died before the source of the copy was deleted
+        FileUtils.writeStringToFile(new File(folder, "copied.mp3"), "copied", "UTF-8");
+        FileUtils.writeStringToFile(new File(folder, "Music/Copied.mp3"), "copied", "UTF-8");
+        // another file is at the target
+        FileUtils.writeStringToFile(new File(folder, "conflict.mp3"), "conflict", "UTF-8");
+        FileUtils.writeStringToFile(new File(folder, "Music/Conflict.mp3"), "other", "UTF-8");
+
+        journal.open();
+        journal.writeIntents(Arrays.asList(createMove(copied), createMove(conflict)));
+        journal.close(false);
+
+        journal.recover();
+
+        Session session = sessionFactory.openSession();
+        try {
+            MusicTrack track = (MusicTrack) session.get(MusicTrack.class, copied.getId());
+            Assert.assertEquals("/Music/Copied.mp3", track.getFilePath());
+            Assert.assertTrue("The copied track must be correct", track.isFilePathCorrect());
+            Assert.assertFalse("The source of the copy must be deleted", new File(folder, "copied.mp3").exists());
+            track = (MusicTrack) session.get(MusicTrack.class, conflict.getId());
+            Assert.assertEquals("/conflict.mp3", track.getFilePath());
+            Assert.assertTrue("The source must be kept", new File(folder, "conflict.mp3").exists());
+            Assert.assertEquals("other", FileUtils.readFileToString(new File(folder, "Music/Conflict.mp3"), "UTF-8"));
+
+            session.createQuery("delete from MusicTrack t where t.id in (:ids)")
+                    .setParameterList("ids", new Long[]{copied.getId(), conflict.getId()})
+                    .executeUpdate();
+        } finally {
+            session.close();
+        }
+    }
+
+    private MusicTrack saveTrack(String filePath, String targetFilePath) {
+        MusicTrack track = new MusicTrack();
+        track.setArtist("Artist");
+        track.setTitle("Title");
+        track.setFilePath(filePath);
+        track.setTargetFilePath(targetFilePath);
+        track.setFilePathCorrect(false);
+        Session session = sessionFactory.openSession();
+        try {
+            session.save(track);
+            session.flush();
+        } finally {
+            session.close();
+        }
+        return track;
+    }
+
+    private MoveExecutor.Move createMove(MusicTrack track) {
+        return new MoveExecutor.Move(track, new File(folder, track.getFilePath()),
+                new File(folder, track.getTargetFilePath()));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.FailedMove;
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"/applicationContext.xml"})
+public class MoveQueueTest {
+
+    private static final long RETRY_DELAY = 60000;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    private Session session;
+
+    private final List<Long> expectedIds = new ArrayList<Long>();
+
+    @Before
+    public void setUp() {
+        session = sessionFactory.openSession();
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 7; i++) {
+            MusicTrack track = createTrack(i, i != 3);
+            session.save(track);
+            if (i == 4) {
+                // failed twice, the last attempt is too recent
+                session.save(createFailedMove(track, 2, now - RETRY_DELAY));
+            } else if (i == 5) {
+                // failed once, it can be tried again
+                session.save(createFailedMove(track, 1, now - RETRY_DELAY - 1));
+            }
+            if ((i != 3) && (i != 4)) {
+                expectedIds.add(track.getId());
+            }
+        }
+        session.flush();
+        session.clear();
+    }
+
+    @After
+    public void tearDown() {
+        session.createQuery("delete from FailedMove").executeUpdate();
+        session.createQuery("delete from MusicTrack").executeUpdate();
+        session.close();
+    }
+
+    @Test
+    public void testPaging() {
+        MoveQueue queue = new MoveQueue(session, 2, RETRY_DELAY);
+        List<Long> ids = new ArrayList<Long>();
+        List<Integer> sizes = new ArrayList<Integer>();
+        List<MusicTrack> tracks = queue.nextBatch();
+        while (!tracks.isEmpty()) {
+            sizes.add(tracks.size());
+            for (MusicTrack track : tracks) {
+                ids.add(track.getId());
+            }
+            tracks = queue.nextBatch();
+        }
+        Assert.assertEquals("The tracks must be read once in the order of the ids", expectedIds, ids);
+        Assert.assertEquals("[2, 2, 1]", sizes.toString());
+    }
+
+    @Test
+    public void testWithoutRetryDelay() {
+        MoveQueue queue = new MoveQueue(session, 10, 0);
+        Assert.assertEquals("All failed moves must be read", 6, queue.nextBatch().size());
+        Assert.assertTrue(queue.nextBatch().isEmpty());
+    }
+
+    private MusicTrack createTrack(int number, boolean toMove) {
+        MusicTrack track = new MusicTrack();
+        track.setArtist("Artist");
+        track.setTitle("Title " + number);
+        track.setFilePath("/" + number + ".mp3");
+        track.setTargetFilePath("/Artist/" + number + ".mp3");
+        track.setFilePathCorrect(!toMove);
+        return track;
+    }
+
+    private FailedMove createFailedMove(MusicTrack track, int attempts, long lastAttempt) {
+        FailedMove failedMove = new FailedMove();
+        failedMove.setTrackId(track.getId());
+        failedMove.setFilePath(track.getFilePath());
+        failedMove.setTargetFilePath(track.getTargetFilePath());
+        failedMove.setAttempts(attempts);
+        failedMove.setLastAttempt(lastAttempt);
+        return failedMove;
+    }
+}
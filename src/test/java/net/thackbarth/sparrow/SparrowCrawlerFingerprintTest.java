@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+public class SparrowCrawlerFingerprintTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Before
+    public void setUp() {
+        configuration.setFingerprint(true);
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setFingerprint(false);
+    }
+
+    @Test
+    public void testMovedFile() throws IOException {
+        FileUtils.copyFile(new File(dataFolder, "Simple-file.mp3"), new File(folder, "Simple-file.mp3"));
+        crawler.startCrawling();
+        MusicTrack before = loadTrack();
+        Assert.assertNotNull("The fingerprint must be stored", before.getFingerprint());
+
+        FileUtils.moveFile(new File(folder, "Simple-file.mp3"), new File(folder, "Renamed/Simple-file.mp3"));
+        crawler.startCrawling();
+        MusicTrack after = loadTrack();
+
+        Assert.assertEquals("The moved file must keep its track", before.getId(), after.getId());
+        Assert.assertEquals("/Renamed/Simple-file.mp3", after.getFilePath());
+        Assert.assertEquals(before.getFingerprint(), after.getFingerprint());
+        Assert.assertEquals(before.getTitle(), after.getTitle());
+    }
+
+    private MusicTrack loadTrack() {
+        Session session = sessionFactory.openSession();
+        try {
+            List list = session.createCriteria(MusicTrack.class).list();
+            Assert.assertEquals("The number of tracks is not correct", 1, list.size());
+            return (MusicTrack) list.get(0);
+        } finally {
+            session.close();
+        }
+    }
+}
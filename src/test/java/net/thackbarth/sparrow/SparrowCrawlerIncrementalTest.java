@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+
+public class SparrowCrawlerIncrementalTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.copyFile(new File(dataFolder, "Simple-file.mp3"), new File(folder, "A/Simple-file.mp3"));
+        FileUtils.copyFile(new File(dataFolder, "Test-various-file.mp3"), new File(folder, "B/Test-various-file.mp3"));
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setFullScan(false);
+    }
+
+    @Test
+    public void testIncrementalCrawl() throws IOException {
+        crawler.startCrawling();
+        Assert.assertEquals("The number of tracks is not correct", 2, countTracks());
+        String title = loadTrack("/A/Simple-file.mp3").getTitle();
+
+        // the file is changed in place, the directory keeps its modification date
+        File directoryA = new File(folder, "A");
+        long directoryDate = directoryA.lastModified();
+        File changedFile = new File(directoryA, "Simple-file.mp3");
+        FileUtils.copyFile(new File(dataFolder, "Test-podcast-file.mp3"), changedFile);
+        Assert.assertTrue(changedFile.setLastModified(changedFile.lastModified() + 10000));
+        Assert.assertTrue(directoryA.setLastModified(directoryDate));
+        // a new file changes the directory
+        FileUtils.copyFile(new File(dataFolder, "Test-soundtrack-file.mp3"), new File(folder, "B/New-file.mp3"));
+
+        crawler.startCrawling();
+        Assert.assertEquals("The new file is not found", 3, countTracks());
+        Assert.assertNotNull("The new file is not stored", loadTrack("/B/New-file.mp3"));
+        Assert.assertEquals("The unchanged directory must be skipped",
+                title, loadTrack("/A/Simple-file.mp3").getTitle());
+
+        configuration.setFullScan(true);
+        crawler.startCrawling();
+        Assert.assertEquals("The number of tracks is not correct", 3, countTracks());
+        Assert.assertEquals("A full crawl must read the changed file",
+                "Title Podcast", loadTrack("/A/Simple-file.mp3").getTitle());
+    }
+
+    private int countTracks() {
+        Session session = sessionFactory.openSession();
+        try {
+            return session.createCriteria(MusicTrack.class).list().size();
+        } finally {
+            session.close();
+        }
+    }
+
+    private MusicTrack loadTrack(String filePath) {
+        Session session = sessionFactory.openSession();
+        try {
+            return (MusicTrack) session.createCriteria(MusicTrack.class)
+                    .add(Restrictions.eq("filePath", filePath))
+                    .uniqueResult();
+        } finally {
+            session.close();
+        }
+    }
+}
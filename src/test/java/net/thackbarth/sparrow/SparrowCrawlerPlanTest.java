@@ -0,0 +1,90 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class SparrowCrawlerPlanTest extends AbstractDataFolderTest {
+
+    private static final String[] FILES = {"Simple-file.mp3", "Test-podcast-file.mp3", "Test-various-file.mp3"};
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    private Path planFile;
+
+    @Before
+    public void setUp() throws IOException {
+        for (String name : FILES) {
+            FileUtils.copyFile(new File(dataFolder, name), new File(folder, name));
+        }
+        planFile = new File(folder.getParentFile(), folder.getName() + ".plan").toPath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        configuration.setMoveActive(false);
+        Files.deleteIfExists(planFile);
+    }
+
+    @Test
+    public void testPlanAndApply() throws IOException {
+        crawler.writePlan(planFile);
+        for (String name : FILES) {
+            Assert.assertTrue("The plan must not move " + name, new File(folder, name).exists());
+        }
+        List<String> lines = Files.readAllLines(planFile, Charset.forName("UTF-8"));
+        Assert.assertEquals("The number of lines of the plan is not correct", FILES.length + 1, lines.size());
+        // the reviewer removes the last move
+        Files.write(planFile, lines.subList(0, FILES.length), Charset.forName("UTF-8"));
+
+        configuration.setMoveActive(true);
+        crawler.applyPlan(planFile);
+
+        int moved = 0;
+        Session session = sessionFactory.openSession();
+        try {
+            List list = session.createCriteria(MusicTrack.class).list();
+            Assert.assertEquals("The number of tracks is not correct", FILES.length, list.size());
+            for (Object obj : list) {
+                MusicTrack track = (MusicTrack) obj;
+                Assert.assertTrue("The file of the track does not exist: " + track,
+                        new File(folder, track.getFilePath()).exists());
+                if (track.isFilePathCorrect()) {
+                    Assert.assertEquals(track.getTargetFilePath(), track.getFilePath());
+                    moved++;
+                }
+            }
+        } finally {
+            session.close();
+        }
+        Assert.assertEquals("The number of moved files is not correct", FILES.length - 1, moved);
+    }
+}
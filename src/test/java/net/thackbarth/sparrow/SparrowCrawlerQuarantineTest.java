@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.dto.QuarantinedFile;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.hibernate.criterion.Restrictions;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+public class SparrowCrawlerQuarantineTest extends AbstractDataFolderTest {
+
+    private static final String CORRUPT_FILE = "/A/Corrupt.mp3";
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Autowired
+    private Quarantine quarantine;
+
+    private File corruptFile;
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.copyFile(new File(dataFolder, "Simple-file.mp3"), new File(folder, "A/Simple-file.mp3"));
+        corruptFile = new File(folder, CORRUPT_FILE);
+        FileUtils.copyFile(new File(dataFolder, "Test-corrupt-file.mp3"), corruptFile);
+        // the touched files must be found in the unchanged directory
+        configuration.setFullScan(true);
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setFullScan(false);
+    }
+
+    @Test
+    public void testSecondCrawl() throws IOException {
+        crawler.startCrawling();
+        List<QuarantinedFile> files = quarantine.list();
+        Assert.assertEquals("The corrupt file is not quarantined", 1, files.size());
+        Assert.assertEquals(CORRUPT_FILE, files.get(0).getFilePath());
+        Long id = files.get(0).getId();
+
+        // the unchanged file is skipped, it is not quarantined again
+        crawler.startCrawling();
+        files = quarantine.list();
+        Assert.assertEquals(1, files.size());
+        Assert.assertEquals("The quarantined file must be skipped", id, files.get(0).getId());
+        Assert.assertNull(loadTrack(CORRUPT_FILE));
+
+        // the file is replaced, the new modification date releases it
+        long modificationDate = corruptFile.lastModified();
+        FileUtils.copyFile(new File(dataFolder, "Test-various-file.mp3"), corruptFile);
+        Assert.assertTrue(corruptFile.setLastModified(modificationDate + 10000));
+        crawler.startCrawling();
+        Assert.assertTrue("The changed file is not released", quarantine.list().isEmpty());
+        Assert.assertNotNull("The changed file is not read", loadTrack(CORRUPT_FILE));
+    }
+
+    @Test
+    public void testRetryQuarantine() throws IOException {
+        crawler.startCrawling();
+        Assert.assertEquals(1, quarantine.list().size());
+        Assert.assertEquals("No audio data", quarantine.list().get(0).getReason());
+
+        // the file is repaired without a new modification date, only a retry reads it
+        long modificationDate = corruptFile.lastModified();
+        FileUtils.copyFile(new File(dataFolder, "Test-various-file.mp3"), corruptFile);
+        Assert.assertTrue(corruptFile.setLastModified(modificationDate));
+        crawler.startCrawling();
+        Assert.assertNull("The quarantined file must be skipped", loadTrack(CORRUPT_FILE));
+
+        crawler.retryQuarantine();
+        Assert.assertTrue("The quarantine is not released", quarantine.list().isEmpty());
+        Assert.assertEquals(0, quarantine.size());
+        Assert.assertNotNull("The released file is not read", loadTrack(CORRUPT_FILE));
+    }
+
+    @Test
+    public void testRelease() {
+        crawler.startCrawling();
+        Assert.assertEquals(1, quarantine.size());
+        Assert.assertEquals(Collections.singletonList(CORRUPT_FILE), quarantine.release());
+        Assert.assertTrue(quarantine.list().isEmpty());
+        Assert.assertEquals(0, quarantine.size());
+        Assert.assertFalse(quarantine.contains(CORRUPT_FILE, corruptFile.lastModified()));
+    }
+
+    private MusicTrack loadTrack(String filePath) {
+        Session session = sessionFactory.openSession();
+        try {
+            return (MusicTrack) session.createCriteria(MusicTrack.class)
+                    .add(Restrictions.eq("filePath", filePath))
+                    .uniqueResult();
+        } finally {
+            session.close();
+        }
+    }
+}
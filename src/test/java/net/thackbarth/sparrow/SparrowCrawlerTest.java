@@ -16,7 +16,9 @@
 
 package net.thackbarth.sparrow;
 
+import net.thackbarth.sparrow.dto.FailedMove;
 import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.dto.QuarantinedFile;
 import org.hibernate.Criteria;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
@@ -43,7 +45,7 @@ public class SparrowCrawlerTest {
 
     public static final int TEST_FILE_COUNT_AFTER_MISSING = 3;
 
-    public static final int TEST_FILE_COUNT_AFTER_DOUBLE = 0;
+    public static final int TEST_FILE_COUNT_AFTER_DOUBLE = 1;
 
     @Autowired
     private SparrowCrawler crawler;
@@ -82,10 +84,51 @@ public class SparrowCrawlerTest {
         Assert.assertTrue("'Title Soundtrack ohne Album' is missing",
                 titleList.contains("Title Soundtrack ohne Album"));
 
-        // Prepare test data
-        String original = "_Music_A_Artist_Album_001.Title.mp3";
+        // the move is not active, only the track in the music folder is at its target
+        List movedTracks = session.createCriteria(MusicTrack.class)
+                .add(Restrictions.eq("filePathCorrect", true)).list();
+        Assert.assertEquals("The number of moved tracks is not correct", 1, movedTracks.size());
+        List failedMoves = session.createCriteria(FailedMove.class).list();
+        Assert.assertEquals("The number of failed moves is not correct", 0, failedMoves.size());
+
+        // the file without audio data and the invalid track are in the quarantine
+        List<String> quarantined = new LinkedList<String>();
+        for (Object fileObj : session.createCriteria(QuarantinedFile.class).list()) {
+            quarantined.add(((QuarantinedFile) fileObj).getFilePath());
+        }
+        Assert.assertEquals("The number of quarantined files is not correct", 2, quarantined.size());
+        Assert.assertTrue("The corrupt file is not quarantined", quarantined.contains("/Test-corrupt-file.mp3"));
+
+        // two files have the same target, the second one gets a numeric suffix
+        String original = "_Music_A_Artist_Album_001.Title.mp3".replace('_', '/');
+        List<String> targets = new LinkedList<String>();
+        String originalOwner = null;
+        String suffixOwner = null;
+        for (Object trackObj : list) {
+            MusicTrack track = (MusicTrack) trackObj;
+            targets.add(track.getTargetFilePath());
+            if (original.equals(track.getTargetFilePath())) {
+                originalOwner = track.getFilePath();
+            } else if (TargetPathRegistry.withSuffix(original, 2).equals(track.getTargetFilePath())) {
+                suffixOwner = track.getFilePath();
+            }
+        }
+        // the file with the smaller path wins, independent of the order of the workers
+        Assert.assertTrue("The target is not resolved", (originalOwner != null) && (suffixOwner != null)
+                && (originalOwner.compareTo(suffixOwner) < 0));
+        Assert.assertTrue("The target is missing", targets.contains(original));
+        Assert.assertTrue("The target with suffix is missing",
+                targets.contains(TargetPathRegistry.withSuffix(original, 2)));
+
+        // Prepare test data, all files are moved to their target
+        for (Object trackObj : list) {
+            MusicTrack track = (MusicTrack) trackObj;
+            track.setFilePath(track.getTargetFilePath());
+            session.saveOrUpdate(track);
+        }
         Criteria prepareCriteria = session.createCriteria(MusicTrack.class)
-                .add(Restrictions.eq("filePath", original.replace('_', '/')));
+                .add(Restrictions.in("targetFilePath",
+                        new String[]{original, TargetPathRegistry.withSuffix(original, 2)}));
         List prepareList = prepareCriteria.list();
 
         Assert.assertEquals("The number of files to prepare is not correct", 2, prepareList.size());
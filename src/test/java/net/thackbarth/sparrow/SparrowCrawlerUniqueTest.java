@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.hibernate.Session;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class SparrowCrawlerUniqueTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Autowired
+    private DatabaseCleaner cleaner;
+
+    @Before
+    public void setUp() {
+        configuration.setUniqueFilePath(true);
+        cleaner.prepareFilePathIndex();
+    }
+
+    @After
+    public void tearDown() {
+        configuration.setUniqueFilePath(false);
+        cleaner.prepareFilePathIndex();
+    }
+
+    @Test
+    public void testDuplicateFilePath() {
+        Session session = sessionFactory.openSession();
+        try {
+            crawler.saveFile(session, createTrack("/First.mp3"));
+            crawler.flush(session);
+
+            // the duplicate must not stop the other tracks of the batch
+            MusicTrack second = createTrack("/Second.mp3");
+            MusicTrack third = createTrack("/Third.mp3");
+            crawler.saveFile(session, second);
+            crawler.saveFile(session, createTrack("/First.mp3"));
+            crawler.saveFile(session, third);
+            crawler.flush(session);
+
+            List paths = session.createQuery("select t.filePath from MusicTrack t order by t.filePath").list();
+            Assert.assertEquals(Arrays.asList("/First.mp3", "/Second.mp3", "/Third.mp3"), paths);
+            // the failed batch is rolled back, the tracks are stored once with their new ids
+            Assert.assertEquals(second.getId(), loadId("/Second.mp3"));
+            Assert.assertEquals(third.getId(), loadId("/Third.mp3"));
+        } finally {
+            session.close();
+        }
+    }
+
+    private Long loadId(String filePath) {
+        Session session = sessionFactory.openSession();
+        try {
+            return (Long) session.createQuery("select t.id from MusicTrack t where t.filePath = :path")
+                    .setString("path", filePath)
+                    .uniqueResult();
+        } finally {
+            session.close();
+        }
+    }
+
+    private MusicTrack createTrack(String filePath) {
+        MusicTrack track = new MusicTrack();
+        track.setArtist("Artist");
+        track.setTitle("Title");
+        track.setFilePath(filePath);
+        // the file is at its target, so the scan limit is not touched
+        track.setFilePathCorrect(true);
+        return track;
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import net.thackbarth.sparrow.dto.QuarantinedFile;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.Session;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+public class SparrowCrawlerWatchTest extends AbstractDataFolderTest {
+
+    @Autowired
+    private SparrowCrawler crawler;
+
+    @Autowired
+    private Quarantine quarantine;
+
+    @Before
+    public void setUp() throws IOException {
+        FileUtils.copyFile(new File(dataFolder, "Simple-file.mp3"), new File(folder, "A/Simple-file.mp3"));
+    }
+
+    @Test
+    public void testProcessFiles() throws IOException {
+        crawler.startCrawling();
+        Assert.assertEquals(Arrays.asList("/A/Simple-file.mp3"), loadFilePaths());
+
+        // a new file
+        File newFile = new File(folder, "B/Test-various-file.mp3");
+        FileUtils.copyFile(new File(dataFolder, "Test-various-file.mp3"), newFile);
+        crawler.processFiles(Collections.singletonList(newFile.toPath()));
+        Assert.assertEquals(Arrays.asList("/A/Simple-file.mp3", "/B/Test-various-file.mp3"), loadFilePaths());
+
+        // a changed directory
+        File directory = new File(folder, "C");
+        FileUtils.copyFile(new File(dataFolder, "Test-podcast-file.mp3"), new File(directory, "Podcast.mp3"));
+        FileUtils.copyFile(new File(dataFolder, "Test-soundtrack-file.mp3"), new File(directory, "Sub/Soundtrack.mp3"));
+        crawler.processFiles(Collections.singletonList(directory.toPath()));
+        Assert.assertEquals(Arrays.asList("/A/Simple-file.mp3", "/B/Test-various-file.mp3",
+                "/C/Podcast.mp3", "/C/Sub/Soundtrack.mp3"), loadFilePaths());
+
+        // a deleted file and a deleted directory
+        File deletedFile = new File(folder, "A/Simple-file.mp3");
+        Assert.assertTrue(deletedFile.delete());
+        FileUtils.deleteDirectory(directory);
+        crawler.processFiles(Arrays.<Path>asList(deletedFile.toPath(), directory.toPath()));
+        Assert.assertEquals(Arrays.asList("/B/Test-various-file.mp3"), loadFilePaths());
+    }
+
+    @Test
+    public void testQuarantine() throws IOException {
+        crawler.startCrawling();
+        File corruptFile = new File(folder, "A/Corrupt.mp3");
+        FileUtils.copyFile(new File(dataFolder, "Test-corrupt-file.mp3"), corruptFile);
+        crawler.processFiles(Collections.singletonList(corruptFile.toPath()));
+        Assert.assertTrue(quarantine.contains("/A/Corrupt.mp3", corruptFile.lastModified()));
+        Assert.assertEquals(1, quarantine.size());
+
+        // the changed file is released and quarantined again with the new date
+        Assert.assertTrue(corruptFile.setLastModified(corruptFile.lastModified() + 2000));
+        crawler.processFiles(Collections.singletonList(corruptFile.toPath()));
+        List<QuarantinedFile> files = quarantine.list();
+        Assert.assertEquals(1, files.size());
+        Assert.assertEquals(Long.valueOf(corruptFile.lastModified()), files.get(0).getModificationDate());
+        Assert.assertTrue(quarantine.contains("/A/Corrupt.mp3", corruptFile.lastModified()));
+        Assert.assertEquals(1, quarantine.size());
+    }
+
+    private List<String> loadFilePaths() {
+        List<String> filePaths = new LinkedList<String>();
+        Session session = sessionFactory.openSession();
+        try {
+            for (Object obj : session.createQuery("select t.filePath from MusicTrack t order by t.filePath").list()) {
+                filePaths.add((String) obj);
+            }
+        } finally {
+            session.close();
+        }
+        return filePaths;
+    }
+}
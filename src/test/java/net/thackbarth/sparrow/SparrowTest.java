@@ -37,7 +37,7 @@ public class SparrowTest {
     @Test
     public void testConfiguration() throws ParseException {
         Options options = Sparrow.createOptions();
-        Assert.assertEquals("The size of option does not match!", 4, options.getOptions().size());
+        Assert.assertEquals("The size of option does not match!", 11, options.getOptions().size());
         Assert.assertTrue("The options did not have option 'c'", options.hasOption("c"));
         Assert.assertTrue("The options did not have option 'clean'", options.hasOption("clean"));
         Assert.assertTrue("The options did not have option 'f'", options.hasOption("f"));
@@ -46,15 +46,31 @@ public class SparrowTest {
         Assert.assertTrue("The options did not have option 'help'", options.hasOption("help"));
         Assert.assertTrue("The options did not have option 'l'", options.hasOption("l"));
         Assert.assertTrue("The options did not have option 'limit'", options.hasOption("limit"));
+        Assert.assertTrue("The options did not have option 'w'", options.hasOption("w"));
+        Assert.assertTrue("The options did not have option 'workers'", options.hasOption("workers"));
+        Assert.assertTrue("The options did not have option 'a'", options.hasOption("a"));
+        Assert.assertTrue("The options did not have option 'full'", options.hasOption("full"));
+        Assert.assertTrue("The options did not have option 'd'", options.hasOption("d"));
+        Assert.assertTrue("The options did not have option 'watch'", options.hasOption("watch"));
+        Assert.assertTrue("The options did not have option 'p'", options.hasOption("p"));
+        Assert.assertTrue("The options did not have option 'plan'", options.hasOption("plan"));
+        Assert.assertTrue("The options did not have option 'x'", options.hasOption("x"));
+        Assert.assertTrue("The options did not have option 'apply'", options.hasOption("apply"));
+        Assert.assertTrue("The options did not have option 'q'", options.hasOption("q"));
+        Assert.assertTrue("The options did not have option 'quarantine'", options.hasOption("quarantine"));
+        Assert.assertTrue("The options did not have option 'r'", options.hasOption("r"));
+        Assert.assertTrue("The options did not have option 'retry'", options.hasOption("retry"));
 
         PosixParser parser = new PosixParser();
 
         // Set new data to the configuration
-        String[] args = {"-f", "newdata", "-l", "2000"};
+        String[] args = {"-f", "newdata", "-l", "2000", "-w", "8", "--full"};
         CommandLine commandLine = parser.parse(options, args);
         Sparrow.processConfiguration(configuration, commandLine);
         Assert.assertEquals("The folder is not correct!", "newdata", configuration.getDataFolder());
         Assert.assertEquals("The scanlimit is not corrent", Integer.valueOf(2000), configuration.getScanLimit());
+        Assert.assertEquals("The worker count is not corrent", Integer.valueOf(8), configuration.getWorkerCount());
+        Assert.assertTrue("The full scan is not set", configuration.getFullScan());
 
         // Set null configuration
         Sparrow.processConfiguration(null, null);
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class SparrowWatcherTest {
+
+    @Test
+    public void testSettledPaths() {
+        Path first = Paths.get("first.mp3");
+        Path second = Paths.get("second.mp3");
+        SparrowWatcher watcher = new SparrowWatcher();
+        watcher.pathChanged(first, 1000);
+        watcher.pathChanged(second, 1500);
+        // the file is still copied
+        watcher.pathChanged(first, 2000);
+
+        Assert.assertEquals(Collections.<Path>emptyList(), watcher.takeSettledPaths(1400));
+        Assert.assertEquals(Arrays.asList(second), watcher.takeSettledPaths(1600));
+        Assert.assertEquals(Arrays.asList(first), watcher.takeSettledPaths(2000));
+        Assert.assertEquals(Collections.<Path>emptyList(), watcher.takeSettledPaths(3000));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class TargetPathRegistryTest {
+
+    @Test
+    public void testClaim() {
+        TargetPathRegistry registry = new TargetPathRegistry();
+        registry.register("/A/Album/01.Title.mp3", "/stored.mp3");
+
+        Assert.assertEquals("/A/Album/01.Title.mp3", registry.claim("/A/Album/01.Title.mp3", "/stored.mp3"));
+        Assert.assertEquals("/A/Album/01.Title (2).mp3", registry.claim("/A/Album/01.Title.mp3", "/first.mp3"));
+        Assert.assertEquals("/A/Album/01.Title (3).mp3", registry.claim("/A/Album/01.Title.mp3", "/second.mp3"));
+        // the same file gets the same target again
+        Assert.assertEquals("/A/Album/01.Title (2).mp3", registry.claim("/A/Album/01.Title.mp3", "/first.mp3"));
+        Assert.assertEquals(3, registry.size());
+
+        registry.clear();
+        Assert.assertEquals("/A/Album/01.Title.mp3", registry.claim("/A/Album/01.Title.mp3", "/first.mp3"));
+    }
+
+    @Test
+    public void testResolve() {
+        TargetPathRegistry registry = new TargetPathRegistry();
+        // the workers read the files in any order
+        Assert.assertEquals("/A/01.Title.mp3", registry.claim("/A/01.Title.mp3", "/b.mp3"));
+        Assert.assertEquals("/A/01.Title (2).mp3", registry.claim("/A/01.Title.mp3", "/a.mp3"));
+
+        Map<String, String> changes = registry.resolve();
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals("/A/01.Title.mp3", changes.get("/a.mp3"));
+        Assert.assertEquals("/A/01.Title (2).mp3", changes.get("/b.mp3"));
+        Assert.assertTrue(registry.takeDisplacedTargets().isEmpty());
+
+        // the resolved targets are kept in the next runs
+        Assert.assertEquals("/A/01.Title (2).mp3", registry.claim("/A/01.Title.mp3", "/b.mp3"));
+        Assert.assertEquals("/A/01.Title.mp3", registry.claim("/A/01.Title.mp3", "/a.mp3"));
+        Assert.assertTrue(registry.resolve().isEmpty());
+        Assert.assertEquals(2, registry.size());
+    }
+
+    @Test
+    public void testResolveFileAtTarget() {
+        TargetPathRegistry registry = new TargetPathRegistry();
+        registry.register("/A/01.Title.mp3", "/stored.mp3");
+        Assert.assertEquals("/A/01.Title (2).mp3", registry.claim("/A/01.Title.mp3", "/new.mp3"));
+        Assert.assertEquals("/A/01.Title.mp3", registry.claim("/A/01.Title.mp3", "/A/01.Title.mp3"));
+
+        Assert.assertTrue(registry.resolve().isEmpty());
+        List<String> displaced = registry.takeDisplacedTargets();
+        Assert.assertEquals(Collections.singletonList("/A/01.Title.mp3"), displaced);
+        Assert.assertEquals("/A/01.Title (3).mp3", registry.reassign("/A/01.Title.mp3", "/stored.mp3"));
+        Assert.assertTrue(registry.takeDisplacedTargets().isEmpty());
+    }
+
+    @Test
+    public void testRelease() {
+        TargetPathRegistry registry = new TargetPathRegistry();
+        registry.register("/A/01.Title.mp3", "/deleted.mp3");
+        registry.release("/A/01.Title.mp3", "/other.mp3");
+        Assert.assertEquals("/A/01.Title (2).mp3", registry.claim("/A/01.Title.mp3", "/new.mp3"));
+        registry.resolve();
+
+        registry.release("/A/01.Title.mp3", "/deleted.mp3");
+        Assert.assertEquals("/A/01.Title.mp3", registry.claim("/A/01.Title.mp3", "/next.mp3"));
+    }
+
+    @Test
+    public void testSuffix() {
+        Assert.assertEquals("/A/Title (2).mp3", TargetPathRegistry.withSuffix("/A/Title.mp3", 2));
+        Assert.assertEquals("/A.B/Title (2)", TargetPathRegistry.withSuffix("/A.B/Title", 2));
+    }
+}
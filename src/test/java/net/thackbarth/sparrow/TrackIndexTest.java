@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TrackIndexTest {
+
+    public static final int TRACK_COUNT = 10000;
+
+    @Test
+    public void testIndex() {
+        TrackIndex index = new TrackIndex(0);
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            index.put("/Music/A/Artist/Album/" + i + ".Title.mp3", (long) i * 1000, i);
+        }
+        // the first track of a file path wins
+        index.put("/Music/A/Artist/Album/0.Title.mp3", 42L, 42);
+        index.put("/Music/A/Artist/Album/NoDate.mp3", null, TRACK_COUNT);
+
+        Assert.assertEquals("The size of the index is not correct", TRACK_COUNT + 1, index.size());
+        for (int i = 0; i < TRACK_COUNT; i++) {
+            String filePath = "/Music/A/Artist/Album/" + i + ".Title.mp3";
+            Assert.assertEquals("The id is not correct", Long.valueOf(i), index.findId(filePath));
+            Assert.assertTrue("The track must be unchanged", index.isUnchanged(filePath, (long) i * 1000));
+            Assert.assertFalse("The track must be changed", index.isUnchanged(filePath, (long) i * 1000 + 1));
+        }
+        Assert.assertFalse("A track without date must be changed",
+                index.isUnchanged("/Music/A/Artist/Album/NoDate.mp3", 0));
+        Assert.assertNull("The track must be unknown", index.findId("/Music/B/Unknown.mp3"));
+        Assert.assertFalse("An unknown track must be changed", index.isUnchanged("/Music/B/Unknown.mp3", 0));
+    }
+
+}
@@ -74,4 +74,18 @@ public class FilenameGeneratorTest {
         Assert.assertEquals("/Music/A/Artist/Album/000.Title.mp3", name);
     }
 
+    @Test
+    public void testCleanedValues() {
+        MusicTrack track = new MusicTrack();
+        track.setGenreDescription("Speech");
+        track.setArtist("Die Ärzte");
+        track.setAlbum("Das Beste (Disc 2)");
+        track.setTrack("1");
+        track.setTitle("Schrei nach Liebe!");
+        String name = filenameGenerator.generateName(track);
+
+        Assert.assertNotNull(name);
+        Assert.assertEquals("/Audiobooks/A/DieAerzte/DasBesteDisc2/001.SchreiNachLiebe.mp3", name);
+    }
+
 }
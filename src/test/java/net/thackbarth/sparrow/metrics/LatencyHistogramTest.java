@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyHistogramTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(50));
+
+        Assert.assertEquals(100, histogram.getCount());
+        // 100 microseconds are in the bucket up to 128 microseconds
+        Assert.assertEquals(0.128, histogram.getPercentileMillis(50), DELTA);
+        Assert.assertEquals(0.128, histogram.getPercentileMillis(99), DELTA);
+        Assert.assertEquals(50, histogram.getPercentileMillis(100), DELTA);
+        Assert.assertEquals(50, histogram.getMaxMillis(), DELTA);
+        Assert.assertEquals(0.599, histogram.getMeanMillis(), DELTA);
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getPercentileMillis(99), DELTA);
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.mover;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class AtomicMoveStrategyTest {
+
+    private File folder;
+
+    private AtomicMoveStrategy strategy;
+
+    @Before
+    public void setUp() {
+        folder = new File(System.getProperty("java.io.tmpdir"), "sparrow-strategy-" + System.nanoTime());
+        Assert.assertTrue("Could not create the test folder", folder.mkdirs());
+        strategy = new AtomicMoveStrategy();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void testRename() throws IOException {
+        File source = createFile("rename.mp3", "rename");
+        File target = new File(folder, "renamed.mp3");
+
+        strategy.move(source, target);
+
+        Assert.assertFalse("The source must be deleted", source.exists());
+        Assert.assertEquals("rename", FileUtils.readFileToString(target, "UTF-8"));
+        Assert.assertEquals(1, strategy.getRenameCount());
+        Assert.assertEquals(0, strategy.getCopyCount());
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        File source = createFile("copy.mp3", "copy");
+        Assert.assertTrue(source.setLastModified(1000000000000L));
+        File target = new File(folder, "copied.mp3");
+
+        strategy.copyAndDelete(source.toPath(), target.toPath());
+
+        Assert.assertFalse("The source must be deleted", source.exists());
+        Assert.assertEquals("copy", FileUtils.readFileToString(target, "UTF-8"));
+        Assert.assertEquals("The modification date must be kept", 1000000000000L, target.lastModified());
+        Assert.assertEquals("The temporary file must be renamed", 1, folder.list().length);
+    }
+
+    @Test
+    public void testExistingTarget() throws IOException {
+        File source = createFile("source.mp3", "source");
+        File target = createFile("target.mp3", "target");
+        try {
+            strategy.move(source, target);
+            Assert.fail("An existing target must not be replaced");
+        } catch (IOException e) {
+            Assert.assertEquals("target", FileUtils.readFileToString(target, "UTF-8"));
+            Assert.assertTrue("The source must be kept", source.exists());
+            Assert.assertEquals(1, strategy.getFailureCount());
+        }
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = new File(folder, name);
+        FileUtils.writeStringToFile(file, content, "UTF-8");
+        return file;
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Random;
+
+public class AudioFingerprintTest {
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    @Test
+    public void testXxHash64() {
+        // reference values of the xxHash project
+        Assert.assertEquals(0xEF46DB3751D8E999L, AudioFingerprint.xxHash64(ByteBuffer.allocate(0), 0));
+        Assert.assertEquals(0x44BC2CF5AD770999L, AudioFingerprint.xxHash64(ByteBuffer.wrap("abc".getBytes(ASCII)), 0));
+        Assert.assertEquals(0xFBCEA83C8A378BF1L, AudioFingerprint.xxHash64(
+                ByteBuffer.wrap("Nobody inspects the spammish repetition".getBytes(ASCII)), 0));
+        byte[] alphabet = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".getBytes(ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(alphabet.length + 3);
+        buffer.position(3);
+        buffer.put(alphabet);
+        buffer.position(3);
+        Assert.assertEquals(AudioFingerprint.xxHash64(ByteBuffer.wrap(alphabet), 0),
+                AudioFingerprint.xxHash64(buffer, 0));
+    }
+
+    @Test
+    public void testTagsAreSkipped() throws IOException {
+        byte[] audio = new byte[300 * 1024];
+        new Random(42).nextBytes(audio);
+        File folder = new File(System.getProperty("java.io.tmpdir"), "sparrow-fingerprint-" + System.nanoTime());
+        try {
+            File first = new File(folder, "first.mp3");
+            FileUtils.writeByteArrayToFile(first, concat(id3v2(20), audio));
+            File second = new File(folder, "second.mp3");
+            FileUtils.writeByteArrayToFile(second, concat(id3v2(500), audio, id3v1()));
+            audio[150 * 1024] ^= 1;
+            File changed = new File(folder, "changed.mp3");
+            FileUtils.writeByteArrayToFile(changed, concat(id3v2(20), audio));
+
+            AudioFingerprint fingerprint = new AudioFingerprint();
+            Long expected = fingerprint.compute(first.toPath());
+            Assert.assertNotNull(expected);
+            Assert.assertEquals("The tags must not change the fingerprint", expected,
+                    fingerprint.compute(second.toPath()));
+            Assert.assertFalse("The audio data must change the fingerprint",
+                    expected.equals(fingerprint.compute(changed.toPath())));
+            // the file is not kept open or mapped
+            Assert.assertTrue("The file must be movable", first.renameTo(new File(folder, "moved.mp3")));
+        } finally {
+            FileUtils.deleteDirectory(folder);
+        }
+    }
+
+    @Test
+    public void testShortFile() throws IOException {
+        byte[] audio = new byte[1000];
+        new Random(7).nextBytes(audio);
+        File file = File.createTempFile("sparrow-fingerprint-", ".mp3");
+        try {
+            FileUtils.writeByteArrayToFile(file, concat(id3v2(20), audio, id3v1()));
+            Assert.assertEquals("A short file must be hashed completely",
+                    Long.valueOf(AudioFingerprint.xxHash64(ByteBuffer.wrap(audio), audio.length)),
+                    new AudioFingerprint().compute(file.toPath()));
+        } finally {
+            Assert.assertTrue(file.delete());
+        }
+    }
+
+    private static byte[] id3v2(int size) {
+        byte[] tag = new byte[10 + size];
+        tag[0] = 'I';
+        tag[1] = 'D';
+        tag[2] = '3';
+        tag[3] = 3;
+        tag[8] = (byte) (size >> 7);
+        tag[9] = (byte) (size & 0x7F);
+        return tag;
+    }
+
+    private static byte[] id3v1() {
+        byte[] tag = new byte[128];
+        Arrays.fill(tag, (byte) ' ');
+        tag[0] = 'T';
+        tag[1] = 'A';
+        tag[2] = 'G';
+        return tag;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int length = 0;
+        for (byte[] part : parts) {
+            length += part.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        for (byte[] part : parts) {
+            buffer.put(part);
+        }
+        return buffer.array();
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+public class FileSnifferTest {
+
+    private static final String TEST_DATA = "src/test/resources/testdata/";
+
+    private final FileSniffer sniffer = new FileSniffer();
+
+    @Test
+    public void testTestData() throws IOException {
+        Assert.assertEquals(FileSniffer.Kind.ID3V2, sniff(TEST_DATA + "Simple-file.mp3"));
+        Assert.assertEquals(FileSniffer.Kind.JUNK, sniff(TEST_DATA + "Test-corrupt-file.mp3"));
+        Assert.assertEquals(FileSniffer.Kind.JUNK, sniff(TEST_DATA + "Test-not-music-file.txt"));
+    }
+
+    @Test
+    public void testKinds() throws IOException {
+        byte[] id3v1 = new byte[300];
+        id3v1[0] = 'x';
+        id3v1[172] = 'T';
+        id3v1[173] = 'A';
+        id3v1[174] = 'G';
+        Assert.assertEquals(FileSniffer.Kind.ID3V1_ONLY, sniff(id3v1));
+        byte[] mpeg = new byte[20];
+        mpeg[0] = (byte) 0xFF;
+        mpeg[1] = (byte) 0xFB;
+        Assert.assertEquals(FileSniffer.Kind.MPEG, sniff(mpeg));
+        Assert.assertEquals(FileSniffer.Kind.FLAC, sniff("fLaC\0\0\0\0\0\0".getBytes(Charset.forName("US-ASCII"))));
+        Assert.assertEquals(FileSniffer.Kind.JUNK, sniff("ID3".getBytes(Charset.forName("US-ASCII"))));
+        Assert.assertEquals(FileSniffer.Kind.JUNK, sniff(new byte[0]));
+    }
+
+    private FileSniffer.Kind sniff(String path) throws IOException {
+        return sniffer.sniff(new File(path).toPath());
+    }
+
+    private FileSniffer.Kind sniff(byte[] data) throws IOException {
+        File file = File.createTempFile("sparrow-", ".mp3");
+        try {
+            FileUtils.writeByteArrayToFile(file, data);
+            return sniffer.sniff(file.toPath());
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+}
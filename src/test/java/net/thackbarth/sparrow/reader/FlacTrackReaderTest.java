@@ -0,0 +1,114 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package net.thackbarth.sparrow.reader;
+
+import net.thackbarth.sparrow.dto.MusicTrack;
+import org.apache.commons.io.FileUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+public class FlacTrackReaderTest {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Test
+    public void testReadTags() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("fLaC".getBytes(UTF_8));
+        block(out, 0, false, new byte[34]);
+        // a picture in front of the comments is skipped
+        block(out, 6, false, new byte[5000]);
+        block(out, 4, true, comments("reference libFLAC 1.2.1", "ARTIST=Artist", "ALBUMARTIST=Other",
+                "album=Album", "TITLE=Titel mit Umlauten äöü", "TRACKNUMBER=3", "GENRE=Rock", "TITLE=Second"));
+        out.write(new byte[1000]);
+
+        MusicTrack track = read(out.toByteArray());
+        Assert.assertEquals("Artist", track.getArtist());
+        Assert.assertEquals("Album", track.getAlbum());
+        Assert.assertEquals("Titel mit Umlauten äöü", track.getTitle());
+        Assert.assertEquals("3", track.getTrack());
+        Assert.assertEquals(Integer.valueOf(17), track.getGenre());
+        Assert.assertEquals("Rock", track.getGenreDescription());
+    }
+
+    @Test
+    public void testAlbumArtist() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write("fLaC".getBytes(UTF_8));
+        block(out, 4, true, comments("vendor", "ALBUMARTIST=Album Artist", "TITLE=Title", "GENRE=Chiptune"));
+
+        MusicTrack track = read(out.toByteArray());
+        Assert.assertEquals("Album Artist", track.getArtist());
+        Assert.assertEquals(Integer.valueOf(-1), track.getGenre());
+        Assert.assertEquals("Chiptune", track.getGenreDescription());
+    }
+
+    @Test
+    public void testNoFlac() throws IOException {
+        Assert.assertNull(read(new byte[]{'I', 'D', '3', 3, 0, 0, 0, 0, 0, 0, 1, 2, 3}));
+        // a broken comment block ends the comments
+        ByteBuffer block = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(0, 0).putInt(4, 1).putInt(8, 1000);
+        Assert.assertNull(FlacTrackReader.parseComments(block).getTitle());
+    }
+
+    private static MusicTrack read(byte[] data) throws IOException {
+        File file = File.createTempFile("sparrow-", ".flac");
+        try {
+            FileUtils.writeByteArrayToFile(file, data);
+            MusicTrack track = new MusicTrack();
+            return new FlacTrackReader().readTags(file.toPath(), track) ? track : null;
+        } finally {
+            FileUtils.deleteQuietly(file);
+        }
+    }
+
+    private static void block(ByteArrayOutputStream out, int type, boolean last, byte[] data) {
+        out.write(last ? type | 0x80 : type);
+        out.write(data.length >> 16);
+        out.write(data.length >> 8);
+        out.write(data.length);
+        out.write(data, 0, data.length);
+    }
+
+    private static byte[] comments(String vendor, String... comments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeString(out, vendor);
+        writeInt(out, comments.length);
+        for (String comment : comments) {
+            writeString(out, comment);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeInt(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        byte[] bytes = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+        out.write(bytes, 0, bytes.length);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2013 Thomas Hackbarth (mail@thackbarth.net)
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.thackbarth.sparrow.reader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class tests the reader of the ID3 tags.
+ */
+public class Id3TagReaderTest {
+
+    private static final String TEST_DATA = "src/test/resources/testdata";
+
+    private Id3TagReader tagReader = new Id3TagReader();
+
+    @Test
+    public void testId3v22() throws IOException {
+        TagData tagData = tagReader.readTags(Paths.get(TEST_DATA, "Simple-file.mp3"));
+
+        Assert.assertNotNull(tagData);
+        Assert.assertEquals("Artist", tagData.getArtist());
+        Assert.assertEquals("Album", tagData.getAlbum());
+        Assert.assertEquals("Title", tagData.getTitle());
+    }
+
+    @Test
+    public void testId3v1() throws IOException {
+        TagData tagData = tagReader.readTags(Paths.get(TEST_DATA, "Test-id3-v1-file.mp3"));
+
+        Assert.assertNotNull(tagData);
+        Assert.assertEquals("Artist", tagData.getArtist());
+        Assert.assertEquals("Album", tagData.getAlbum());
+        Assert.assertEquals("Title", tagData.getTitle());
+    }
+
+    @Test
+    public void testCorruptFile() throws IOException {
+        Path file = Paths.get(TEST_DATA, "Test-corrupt-file.mp3");
+
+        Assert.assertNull("A file without tags must be read by mp3agic", tagReader.readTags(file));
+    }
+
+}